@@ -4,10 +4,37 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -16,9 +43,17 @@ import java.util.logging.Logger;
 
 import javax.sql.DataSource;
 
+import com.reactivetechnologies.csvloader.db.ColumnarBatch;
 import com.reactivetechnologies.csvloader.db.DataSourceFactory;
+import com.reactivetechnologies.csvloader.db.BulkLoadWriter;
+import com.reactivetechnologies.csvloader.db.DatabaseSession;
 import com.reactivetechnologies.csvloader.db.DatabaseWriter;
 import com.reactivetechnologies.csvloader.io.AsciiFileReader;
+import com.reactivetechnologies.csvloader.io.FileRange;
+import com.reactivetechnologies.csvloader.io.CompressionCodec;
+import com.reactivetechnologies.csvloader.io.CsvRecordReader;
+import com.reactivetechnologies.csvloader.io.FieldTokenizer;
+import com.reactivetechnologies.csvloader.io.MappedLineReader;
 import com.reactivetechnologies.csvloader.net.SocketCSVLoader;
 
 public class CSVLoader implements JobAllocator {
@@ -32,10 +67,20 @@ public class CSVLoader implements JobAllocator {
 	private Job job = null;
 	protected JobExecutor executor = null;
 	private int loadPerThread = 0;
-	private final AtomicLong loadCount = new AtomicLong();
+	private final AtomicLong loadCount;
 	private int threadCount = 0, executorCount = 1;
 	private DataSource ds;
 	private boolean immediate;
+	/**
+	 * Pool for splitting lines into fields, if parsing in parallel.
+	 */
+	private ExecutorService parsePool;
+	private int parseThreads;
+	/**
+	 * Prepared sessions not in use by a writer, if kept open across files. At most one per thread.
+	 */
+	private BlockingQueue<DatabaseSession> idleSessions;
+	private int poolSize;
 	/**
 	 * 
 	 * @param loadPerThread
@@ -43,6 +88,7 @@ public class CSVLoader implements JobAllocator {
 	public CSVLoader(int loadPerThread)
 	{
 	  ds = DataSourceFactory.getDataSource();
+	  loadCount = new AtomicLong();
 		this.loadPerThread = loadPerThread;
 		immediate = ConfigLoader.isImmediateProcessing();
 		if(System.getProperty(ConfigLoader.SYS_PROP_THREADS) != null)
@@ -50,6 +96,7 @@ public class CSVLoader implements JobAllocator {
 		  try 
 		  {
         int noOfThreads = Integer.valueOf(System.getProperty(ConfigLoader.SYS_PROP_THREADS));
+        poolSize = noOfThreads;
         threadPool = Executors.newFixedThreadPool(noOfThreads, new ThreadFactory() {
           @Override
           public Thread newThread(Runnable r) {
@@ -62,7 +109,8 @@ public class CSVLoader implements JobAllocator {
 		}
 		if(threadPool == null)
 		{
-		  threadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+		  poolSize = Runtime.getRuntime().availableProcessors();
+		  threadPool = Executors.newFixedThreadPool(poolSize, new ThreadFactory() {
         @Override
         public Thread newThread(Runnable r) {
           Thread t = new Thread(r, "jobExecutor-"+(threadCount++));
@@ -72,10 +120,68 @@ public class CSVLoader implements JobAllocator {
       });
 		}
 		
-		executor = new DatabaseWriter(loadPerThread, loadCount, ds);
+		parseThreads = Integer.getInteger(ConfigLoader.SYS_PROP_PARSE_THREADS, 0);
+		if(parseThreads > 0)
+		{
+		  parsePool = Executors.newFixedThreadPool(parseThreads, new ThreadFactory() {
+		    private int n = 0;
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "lineParser-"+(n++));
+          t.setDaemon(true);
+          return t;
+        }
+      });
+		}
+		executor = newWriter();
 		threadPool.execute(executor);
 	}
+	/**
+	 * A loader sharing the thread pool, data source and load count of the parent loader. Used
+	 * for loading a split range of the file, concurrently with the other ranges.
+	 * @param parent
+	 */
+	private CSVLoader(CSVLoader parent)
+	{
+	  this(parent, parent.checkpoint, null);
+	}
+	/**
+	 * 
+	 * @param parent
+	 * @param checkpoint tracker to mark the committed records on, or null
+	 * @param numbering numbering of the split range to refer to records by, or null
+	 */
+	private CSVLoader(CSVLoader parent, CheckpointTracker checkpoint, RecordNumbering numbering)
+	{
+	  ds = parent.ds;
+	  loadCount = parent.loadCount;
+	  loadPerThread = parent.loadPerThread;
+	  immediate = parent.immediate;
+	  threadPool = parent.threadPool;
+	  parsePool = parent.parsePool;
+	  parseThreads = parent.parseThreads;
+	  idleSessions = parent.idleSessions;
+	  this.checkpoint = checkpoint;
+	  this.numbering = numbering;
+	  
+	  executor = newWriter();
+	  threadPool.execute(executor);
+	}
 	
+	/**
+	 * A new writer, marking committed records on the checkpoint if any. Loads with the bulk load command
+	 * of the database, if {@link ConfigLoader#SYS_PROP_BULK_LOAD} is set.
+	 * @return
+	 */
+	private DatabaseWriter newWriter()
+	{
+	  DatabaseWriter writer = System.getProperty(ConfigLoader.SYS_PROP_BULK_LOAD) != null 
+	      ? new BulkLoadWriter(loadPerThread, loadCount, ds) : new DatabaseWriter(loadPerThread, loadCount, ds);
+	  writer.setCheckpoint(checkpoint);
+	  writer.setRecordNumbering(numbering);
+	  writer.setSessionPool(idleSessions);
+	  return writer;
+	}
 	@Override
   public int getloadCount(){
 		return loadCount.intValue();
@@ -112,7 +218,7 @@ public class CSVLoader implements JobAllocator {
           }
         }
         if (!added) {
-          executor = new DatabaseWriter(loadPerThread, loadCount, ds);
+          executor = newWriter();
           threadPool.execute(executor);
           executors.add(executor);
           executorCount++;
@@ -142,7 +248,7 @@ public class CSVLoader implements JobAllocator {
       else
       {
         //pool.execute(executor);
-        executor = new DatabaseWriter(loadPerThread, loadCount, ds);
+        executor = newWriter();
         threadPool.execute(executor);
         executorCount++;
         allocateInOrder();
@@ -165,28 +271,459 @@ public class CSVLoader implements JobAllocator {
 
 	@Override
   public void clean() throws Exception{
+	  if(parsePool != null)
+	    parsePool.shutdown();
 		threadPool.shutdown();
 		threadPool.awaitTermination(600, TimeUnit.MINUTES);
+		if(idleSessions != null)
+		{
+		  DatabaseSession session;
+		  while((session = idleSessions.poll()) != null)
+		    session.close();
+		}
 	}
 	
+	private static boolean isCompressed(String fileName)
+	{
+	  try {
+      return CompressionCodec.detect(new File(fileName)) != null;
+    } catch (IOException e) {
+      log.log(Level.WARNING, "Unable to detect compression of "+fileName, e);
+      return false;
+    }
+	}
 	private void loadByChannelIO(String fileName, int ignoreFirstLine, String separator)
 	{
-	  try(AsciiFileReader reader = new AsciiFileReader(new File(fileName), System.getProperty(ConfigLoader.SYS_PROP_MMAP_IO) != null))
+	  File file = new File(fileName);
+	  boolean inplace = System.getProperty(ConfigLoader.SYS_PROP_MMAP_INPLACE) != null && !isCompressed(fileName)
+	      && System.getProperty(ConfigLoader.SYS_PROP_FOLLOW) == null;
+	  try(AsciiFileReader reader = inplace ? new MappedLineReader(file)
+	      : new AsciiFileReader(file, System.getProperty(ConfigLoader.SYS_PROP_MMAP_IO) != null))
 	  {
-	    String strLine = "";
-      while( (strLine = reader.readLine()) != null){
-        if(ignoreFirstLine == 1){
+	    loadFromReader(reader, ignoreFirstLine, separator);
+	  }
+	  catch (IOException e) {
+     log.log(Level.SEVERE, "File reading error", e);
+  }}
+	/**
+	 * Loads all lines of the reader. The executors are stopped at the end, even if reading fails.
+	 * @param reader
+	 * @param ignoreFirstLine
+	 * @param separator
+	 * @throws IOException
+	 */
+	private void loadFromReader(AsciiFileReader reader, int ignoreFirstLine, String separator) throws IOException
+	{
+	  try 
+	  {
+      String strLine = "";
+      while ((strLine = reader.readLine()) != null) {
+        if (ignoreFirstLine == 1) {
           ignoreFirstLine = 0;
           continue;
         }
+        if (skipRecords > 0) {
+          skipRecords--;
+          line++;
+          continue;
+        }
+        if (parsePool != null) {
+          loadInParallel(reader, strLine, separator);
+          break;
+        }
+        lineEnd = reader.getLineEnd();
         loadNextLine(strLine, separator);
-      }
+      } 
+      readComplete = true;
+    } finally {
       allocate();
+    }
+	}
+	/**
+	 * Number of lines handed to a parse worker at a time.
+	 */
+	static final int PARSE_BATCH_SIZE = 1024;
+	/**
+	 * A batch of lines to be split into fields by a parse worker.
+	 */
+	private static class ParseTask implements Callable<ParseTask>
+	{
+	  private final String separator;
+	  private final ColumnarBatch.Layout layout;
+	  final String[] lines = new String[PARSE_BATCH_SIZE];
+	  final long[] ends = new long[PARSE_BATCH_SIZE];
+	  String[][] values;
+	  /**
+	   * The literal delimiter the lines were split on, if any. The lines are then not kept as payload.
+	   */
+	  String delimiter;
+	  /**
+	   * The parsed records, if batching by column.
+	   */
+	  ColumnarBatch batch;
+	  int size;
+	  /**
+	   * Record index of the first line.
+	   */
+	  int base;
+	  ParseTask(String separator, ColumnarBatch.Layout layout, int base) {
+	    this.separator = separator;
+	    this.layout = layout;
+	    this.base = base;
+	  }
+	  boolean add(String line, long end)
+	  {
+	    ends[size] = end;
+	    lines[size++] = line;
+	    return size == PARSE_BATCH_SIZE;
+	  }
+    @Override
+    public ParseTask call() {
+      FieldTokenizer tokenizer = FieldTokenizer.forSeparator(separator);
+      if(layout != null)
+      {
+        batch = new ColumnarBatch(layout, base, size);
+        for(int i = 0; i < size; i++)
+          batch.add(lines[i], tokenizer, ends[i]);
+        return this;
+      }
+      values = new String[size][];
+      for(int i = 0; i < size; i++)
+      {
+        if(tokenizer != null)
+        {
+          tokenizer.tokenize(lines[i]);
+          values[i] = tokenizer.toArray();
+          lines[i] = null;
+        }
+        else
+          values[i] = lines[i].split(separator, -1);
+      }
+      if(tokenizer != null)
+        delimiter = tokenizer.getDelimiter();
+      return this;
+    }
+	}
+	/**
+	 * Loads the remaining lines of the reader, with the splitting done on the parse pool. This thread reads the lines,
+	 * hands them off in batches, and allocates the parsed records. Record indexes are assigned when a batch is read. 
+	 * In the default (in order) mode, the parsed batches are taken in the order they were read, so the records are 
+	 * allocated in sequence. In immediate mode, batches are taken as soon as they are parsed.
+	 * @param reader
+	 * @param firstLine the first line, already read
+	 * @param separator
+	 * @throws IOException
+	 */
+	private void loadInParallel(AsciiFileReader reader, String firstLine, String separator) throws IOException
+	{
+	  Deque<Future<ParseTask>> inOrder = new ArrayDeque<>();
+	  CompletionService<ParseTask> anyOrder = immediate ? new ExecutorCompletionService<ParseTask>(parsePool) : null;
+	  //batches being parsed, beyond which the reader waits
+	  int window = parseThreads * 2, inFlight = 0;
+	  ColumnarBatch.Layout layout = columnarLayout(separator);
+	  try 
+	  {
+	    ParseTask task = new ParseTask(separator, layout, line);
+	    String strLine = firstLine;
+	    boolean more;
+	    do
+	    {
+	      more = strLine != null;
+	      if(more ? task.add(strLine, reader.getLineEnd()) : task.size > 0)
+	      {
+	        line += task.size;
+	        if(inFlight == window)
+	        {
+	          allocateParsed(immediate ? anyOrder.take() : inOrder.poll());
+	          inFlight--;
+	        }
+	        if(immediate)
+	          anyOrder.submit(task);
+	        else
+	          inOrder.add(parsePool.submit(task));
+	        inFlight++;
+	        task = new ParseTask(separator, layout, line);
+	      }
+	      if(more)
+	        strLine = reader.readLine();
+	    }
+	    while (more);
+	    
+	    for(; inFlight > 0; inFlight--)
+	      allocateParsed(immediate ? anyOrder.take() : inOrder.poll());
+	  } 
+	  catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new InterruptedIOException();
+	  } 
+	  catch (ExecutionException e) {
+	    throw new IOException("Parsing failed", e.getCause());
+	  }
+	}
+	
+	/**
+	 * The table layout for batching records by column, if {@link ConfigLoader#SYS_PROP_COLUMNAR} is set. Batching needs
+	 * a literal separator, and is not used for upserts.
+	 * @param separator
+	 * @return the layout, or null if records are not to be batched by column
+	 */
+	private ColumnarBatch.Layout columnarLayout(String separator)
+	{
+	  if(System.getProperty(ConfigLoader.SYS_PROP_COLUMNAR) == null || System.getProperty("upsert") != null)
+	    return null;
+	  if(FieldTokenizer.forSeparator(separator) == null)
+	  {
+	    log.warning("Separator '"+separator+"' is not a literal. Records will not be batched by column");
+	    return null;
+	  }
+	  try {
+	    return ColumnarBatch.layoutOf(ds);
+	  } catch (SQLException e) {
+	    log.log(Level.WARNING, "Unable to read the table columns. Records will not be batched by column", e);
+	    return null;
 	  }
+	}
+	private void allocateParsed(Future<ParseTask> parsed) throws InterruptedException, ExecutionException
+	{
+	  ParseTask task = parsed.get();
+	  if(task.batch != null)
+	  {
+	    job = task.batch;
+	    allocate();
+	    return;
+	  }
+	  for(int i = 0; i < task.size; i++)
+	    allocateRecord(task.base + i, task.ends[i], task.values[i], task.lines[i], task.delimiter);
+	}
+	/**
+	 * Splits the file into line aligned byte ranges, and loads each range concurrently on its own reader
+	 * and executors. All ranges start loading at once, without reading the file ahead to count lines. The records
+	 * of the first range are indexed as in a sequential load, and those of the other ranges are indexed from 1 
+	 * within the range. A record is referred to in messages by its file index once the earlier ranges are read, 
+	 * and as <code>Rec#n of range #i</code> till then, by the {@linkplain RecordNumbering} of its range. If checkpointing, 
+	 * each range is tracked on its own, and mapped to the file record indexes once the earlier ranges are read.
+	 * @param fileName
+	 * @param ignoreFirstLine
+	 * @param separator
+	 * @param splits
+	 */
+	private void loadBySplitIO(String fileName, int ignoreFirstLine, final String separator, int splits)
+	{
+	  final File file = new File(fileName);
+	  ExecutorService splitPool = Executors.newFixedThreadPool(splits, new ThreadFactory() {
+	    private int n = 0;
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "splitReader-"+(n++));
+        t.setDaemon(true);
+        return t;
+      }
+    });
+	  try 
+	  {
+      List<FileRange> ranges = FileRange.split(file, splits);
+      List<CSVLoader> rangeLoaders = new ArrayList<>(ranges.size());
+      List<Future<Integer>> rangeLoads = new ArrayList<>(ranges.size());
+      List<RecordNumbering> rangeNumberings = new ArrayList<>(ranges.size());
+      RecordNumbering previous = null;
+      for (int i = 0; i < ranges.size(); i++) 
+      {
+        final FileRange range = ranges.get(i);
+        //the header, if any, is the first line of the file
+        final int ignoreLine = i == 0 ? ignoreFirstLine : 0;
+        final int firstLine = i == 0 ? line : 1;
+        final RecordNumbering rangeNumbering = previous == null ? new RecordNumbering(firstLine) : previous.next();
+        previous = rangeNumbering;
+        final CSVLoader rangeLoader = new CSVLoader(this, checkpoint != null ? checkpoint.newRange() : null, rangeNumbering);
+        rangeLoader.line = firstLine;
+        rangeLoaders.add(rangeLoader);
+        rangeNumberings.add(rangeNumbering);
+        
+        log.fine("Loading "+range+" as range #"+i+", starting at "+rangeNumbering.format(firstLine));
+        rangeLoads.add(splitPool.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() throws IOException {
+            try(AsciiFileReader reader = System.getProperty(ConfigLoader.SYS_PROP_MMAP_INPLACE) != null
+                ? new MappedLineReader(file, range) : new AsciiFileReader(file, range))
+            {
+              rangeLoader.loadFromReader(reader, ignoreLine, separator);
+            }
+            int records = rangeLoader.line - firstLine;
+            rangeNumbering.rangeRead(records);
+            if(rangeLoader.checkpoint != null)
+              rangeLoader.checkpoint.rangeRead(records);
+            return records;
+          }
+        }));
+      }
+      int records = 0;
+      for (Future<Integer> rangeLoad : rangeLoads) {
+        records += rangeLoad.get();
+      }
+      for (CSVLoader rangeLoader : rangeLoaders) {
+        executorCount += rangeLoader.executorCount;
+      }
+      line += records;
+      readComplete = true;
+      log.info("Loaded file in "+ranges.size()+" split range(s)");
+      for (RecordNumbering rangeNumbering : rangeNumberings) {
+        log.info(rangeNumbering.toString());
+      }
+    } 
 	  catch (IOException e) {
-     log.log(Level.SEVERE, "File reading error", e);
-  }}
+	    log.log(Level.SEVERE, "File reading error", e);
+    } 
+	  catch (ExecutionException e) {
+	    log.log(Level.SEVERE, "File reading error", e.getCause());
+    } 
+	  catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+    }
+	  finally
+	  {
+	    splitPool.shutdown();
+	    allocate();
+	  }
+	}
 	private int line = 1;
+	/**
+	 * Splits lines on a literal separator. Used by the thread reading for this loader.
+	 */
+	private FieldTokenizer tokenizer;
+	private String tokenizerSeparator;
+	/**
+	 * End offset of the line being loaded, and number of records to skip when resuming.
+	 */
+	private long lineEnd = -1;
+	private int skipRecords = 0;
+	private CheckpointTracker checkpoint;
+	/**
+	 * Numbering of the split range loaded, or null.
+	 */
+	private RecordNumbering numbering;
+	/**
+	 * Whether the file was read through without error.
+	 */
+	private boolean readComplete;
+	/**
+	 * Starts checkpointing the load of the file, so that the load can be resumed if it fails. If
+	 * {@link ConfigLoader#SYS_PROP_RESUME} is set, the saved checkpoint is restored.
+	 * @param fileName
+	 * @return true if a saved checkpoint was restored
+	 */
+	private boolean openCheckpoint(String fileName)
+	{
+	  try 
+	  {
+	    checkpoint = new CheckpointTracker(new File(fileName));
+	    if(executor instanceof DatabaseWriter)
+	      ((DatabaseWriter) executor).setCheckpoint(checkpoint);
+	    
+      return System.getProperty(ConfigLoader.SYS_PROP_RESUME) != null && checkpoint.restore();
+    } catch (IOException e) {
+      log.log(Level.WARNING, "Unable to open checkpoint. The load will not be resumable", e);
+      checkpoint = null;
+      return false;
+    }
+	}
+	/**
+	 * Resumes the load after the checkpoint. The file is read from the checkpoint offset, or if that is not possible
+	 * (a compressed file, or offset not known), the committed records are read and skipped.
+	 * @param fileName
+	 * @param ignoreFirstLine
+	 * @param separator
+	 */
+	private void resume(String fileName, int ignoreFirstLine, String separator)
+	{
+	  File file = new File(fileName);
+	  boolean seek = checkpoint.getOffset() >= 0 && !isCompressed(fileName);
+	  if(seek)
+	  {
+	    line = checkpoint.getIndex() + 1;
+	    ignoreFirstLine = 0;
+	    log.info("Resuming load of "+fileName+" from offset "+checkpoint.getOffset()+", at Rec#"+line);
+	  }
+	  else
+	  {
+	    skipRecords = checkpoint.getIndex();
+	    log.info("Resuming load of "+fileName+" after skipping "+skipRecords+" committed records");
+	  }
+	  int delimiter = recordDelimiter(separator);
+	  if(delimiter != -1)
+	  {
+	    try(CsvRecordReader reader = seek ? new CsvRecordReader(file, (byte) delimiter, checkpoint.getOffset()) 
+	        : new CsvRecordReader(file, (byte) delimiter, System.getProperty(ConfigLoader.SYS_PROP_MMAP_IO) != null))
+	    {
+	      loadFromRecords(reader, ignoreFirstLine);
+	    }
+	    catch (IOException e) {
+	      log.log(Level.SEVERE, "File reading error", e);
+	    }
+	    return;
+	  }
+	  try(AsciiFileReader reader = seek ? new AsciiFileReader(file, checkpoint.getOffset()) 
+	      : new AsciiFileReader(file, System.getProperty(ConfigLoader.SYS_PROP_MMAP_IO) != null))
+	  {
+	    loadFromReader(reader, ignoreFirstLine, separator);
+	  }
+	  catch (IOException e) {
+	    log.log(Level.SEVERE, "File reading error", e);
+	  }
+	}
+	/**
+	 * The delimiter for parsing by {@link CsvRecordReader}, if {@link ConfigLoader#SYS_PROP_CSV_RFC4180} is set.
+	 * @param separator
+	 * @return the delimiter, or -1 if records are to be parsed by splitting lines
+	 */
+	private static int recordDelimiter(String separator)
+	{
+	  if(System.getProperty(ConfigLoader.SYS_PROP_CSV_RFC4180) == null)
+	    return -1;
+	  int delimiter = CsvRecordReader.toDelimiter(separator);
+	  if(delimiter == -1)
+	    log.warning("Separator '"+separator+"' is not a single character. Quoted fields will not be parsed");
+	  return delimiter;
+	}
+	private void loadByRecordIO(String fileName, int ignoreFirstLine, byte delimiter)
+	{
+	  try(CsvRecordReader reader = new CsvRecordReader(new File(fileName), delimiter, 
+	      System.getProperty(ConfigLoader.SYS_PROP_MMAP_IO) != null))
+	  {
+	    loadFromRecords(reader, ignoreFirstLine);
+	  }
+	  catch (IOException e) {
+	    log.log(Level.SEVERE, "File reading error", e);
+	  }
+	}
+	/**
+	 * Loads all records of the reader, parsed on this thread. The executors are stopped at the end, even if reading fails.
+	 * @param reader
+	 * @param ignoreFirstLine
+	 * @throws IOException
+	 */
+	private void loadFromRecords(CsvRecordReader reader, int ignoreFirstLine) throws IOException
+	{
+	  try 
+	  {
+	    String[] values;
+	    while ((values = reader.readRecord()) != null) {
+	      if (ignoreFirstLine == 1) {
+	        ignoreFirstLine = 0;
+	        continue;
+	      }
+	      if (skipRecords > 0) {
+	        skipRecords--;
+	        line++;
+	        continue;
+	      }
+	      lineEnd = reader.getRecordEnd();
+	      loadNextRecord(values, null);
+	    } 
+	    readComplete = true;
+	  } finally {
+	    allocate();
+	  }
+	}
 	
 	/**
 	 * Loads next line
@@ -196,11 +733,45 @@ public class CSVLoader implements JobAllocator {
 	protected void loadNextLine(String strLine, String separator)
 	{
 	  //log.info(strLine);
-	  String[] values = strLine.split(separator, -1);
+	  if(!separator.equals(tokenizerSeparator))
+	  {
+	    tokenizer = FieldTokenizer.forSeparator(separator);
+	    tokenizerSeparator = separator;
+	  }
+	  if(tokenizer != null)
+	  {
+	    tokenizer.tokenize(strLine);
+	    allocateRecord(line++, lineEnd, tokenizer.toArray(), null, tokenizer.getDelimiter());
+	  }
+	  else
+	    loadNextRecord(strLine.split(separator, -1), strLine);
+	}
+	/**
+	 * Loads next record
+	 * @param values field values
+	 * @param payload the source text, if available
+	 */
+	protected void loadNextRecord(String[] values, String payload)
+	{
+	  allocateRecord(line++, lineEnd, values, payload, null);
+	}
+	/**
+	 * Allocates a record. The source line is not kept as payload if the values were split on a literal delimiter, 
+	 * as it can be rebuilt from them.
+	 * @param index
+	 * @param offset
+	 * @param values
+	 * @param payload
+	 * @param delimiter the literal delimiter the values were split on, or null
+	 */
+	private void allocateRecord(int index, long offset, String[] values, String payload, String delimiter)
+	{
     job = new Job();
-    job.setJobIndex(line++);
+    job.setJobIndex(index);
+    job.setOffset(offset);
     job.setJobDefn(values);
-    job.setPayload(strLine);
+    job.setPayload(payload);
+    job.setDelimiter(delimiter);
     allocate();
     
 	}
@@ -226,6 +797,220 @@ public class CSVLoader implements JobAllocator {
     }
 	}
   protected long startTime;
+  /**
+   * Resolves the input files, which may be a single file, a directory, or a glob pattern on file names
+   * (like <code>/data/in/trades_*.csv</code>). The files are ordered largest first, so that the biggest loads
+   * are not left to run alone at the end. Hidden files and checkpoint files are skipped.
+   * @param fileName
+   * @return
+   * @throws IOException
+   */
+  static List<File> resolveFiles(String fileName) throws IOException
+  {
+    List<File> files = new ArrayList<>();
+    Path path = Paths.get(fileName);
+    String glob = null;
+    if(!Files.isDirectory(path) && (fileName.indexOf('*') != -1 || fileName.indexOf('?') != -1 
+        || fileName.indexOf('[') != -1 || fileName.indexOf('{') != -1))
+    {
+      glob = path.getFileName().toString();
+      path = path.getParent() != null ? path.getParent() : Paths.get(".");
+    }
+    else if(!Files.isDirectory(path))
+    {
+      files.add(path.toFile());
+      return files;
+    }
+    try(DirectoryStream<Path> dir = glob != null ? Files.newDirectoryStream(path, glob) : Files.newDirectoryStream(path))
+    {
+      for(Path p : dir)
+      {
+        if(Files.isRegularFile(p) && !Files.isHidden(p) && !CheckpointTracker.isCheckpoint(p.toFile()))
+          files.add(p.toFile());
+      }
+    }
+    Collections.sort(files, LARGEST_FIRST);
+    return files;
+  }
+  private static final Comparator<File> LARGEST_FIRST = new Comparator<File>() {
+    @Override
+    public int compare(File o1, File o2) {
+      return Long.compare(o2.length(), o1.length());
+    }
+  };
+  /**
+   * Watches a drop directory, and loads files as they land. The directory is given by {@link ConfigLoader#LOAD_FILE_NAME},
+   * optionally with a glob pattern on file names. Files already present are loaded first. A file is loaded once its size
+   * has not changed for {@link ConfigLoader#SYS_PROP_WATCH_SETTLE} millis, so that files still being copied are not picked.
+   * Hidden files are ignored, which allows writers to drop a file under a temporary dot name and rename it when complete.
+   * <p>The loader is kept running between files, so the thread pool, table metadata and the prepared sessions (connections 
+   * and statements) of the writers remain warm. Runs until the thread is interrupted, or the directory is no longer accessible.
+   * @param fileName
+   * @param ignoreFirstLine
+   * @param separator
+   */
+  private void watch(String fileName, int ignoreFirstLine, String separator)
+  {
+    Path dir = Paths.get(fileName);
+    String glob = "*";
+    if(!Files.isDirectory(dir))
+    {
+      glob = dir.getFileName().toString();
+      dir = dir.getParent() != null ? dir.getParent() : Paths.get(".");
+    }
+    PathMatcher matcher = dir.getFileSystem().getPathMatcher("glob:"+glob);
+    long settle = Long.getLong(ConfigLoader.SYS_PROP_WATCH_SETTLE, 2000);
+    //file -> last modified time, when loaded
+    Map<Path, Long> loaded = new HashMap<>();
+    //file -> size on last check
+    Map<Path, Long> pending = new LinkedHashMap<>();
+    
+    try(WatchService watcher = dir.getFileSystem().newWatchService())
+    {
+      dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, 
+          StandardWatchEventKinds.ENTRY_DELETE);
+      for(File f : resolveFiles(fileName))
+        pending.put(f.toPath(), -1L);
+      
+      log.info("Watching directory "+dir.toAbsolutePath()+" for files matching '"+glob+"'");
+      while(!Thread.currentThread().isInterrupted())
+      {
+        WatchKey key = watcher.poll(settle, TimeUnit.MILLISECONDS);
+        if(key != null)
+        {
+          for(WatchEvent<?> event : key.pollEvents())
+          {
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW)
+            {
+              //events may have been lost, including deletes
+              for(Iterator<Path> iter = loaded.keySet().iterator(); iter.hasNext();)
+              {
+                if(!Files.exists(iter.next()))
+                  iter.remove();
+              }
+              for(File f : resolveFiles(fileName))
+                pending.put(f.toPath(), -1L);
+            }
+            else if(event.kind() == StandardWatchEventKinds.ENTRY_DELETE)
+            {
+              //a file dropped again under the same name is a new file
+              loaded.remove(dir.resolve((Path) event.context()));
+            }
+            else
+            {
+              Path file = dir.resolve((Path) event.context());
+              if(matcher.matches(file.getFileName()) && !CheckpointTracker.isCheckpoint(file.toFile()))
+                pending.put(file, -1L);
+            }
+          }
+          if(!key.reset())
+          {
+            log.warning("Directory "+dir+" is no longer accessible. Stopping watch");
+            break;
+          }
+        }
+        
+        List<File> ready = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for(Iterator<Entry<Path, Long>> iter = pending.entrySet().iterator(); iter.hasNext();)
+        {
+          Entry<Path, Long> entry = iter.next();
+          Path file = entry.getKey();
+          if(!Files.isRegularFile(file) || Files.isHidden(file))
+          {
+            iter.remove();
+            continue;
+          }
+          long size = Files.size(file), modified = Files.getLastModifiedTime(file).toMillis();
+          Long loadedAt = loaded.get(file);
+          if(loadedAt != null && loadedAt == modified)
+          {
+            iter.remove();
+          }
+          else if(size == entry.getValue() && now - modified >= settle)
+          {
+            ready.add(file.toFile());
+            loaded.put(file, modified);
+            iter.remove();
+          }
+          else
+            entry.setValue(size);
+        }
+        if(!ready.isEmpty())
+        {
+          Collections.sort(ready, LARGEST_FIRST);
+          loadFiles(ready, ignoreFirstLine, separator);
+        }
+      }
+    } 
+    catch (IOException e) {
+      log.log(Level.SEVERE, "Unable to watch directory "+dir, e);
+    } 
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+  /**
+   * Loads a number of files concurrently, sharing the thread pool, data source and prepared sessions. Each file is loaded
+   * by its own child loader and writers, so record indexes and checkpoints are per file. A writer done with a file hands
+   * its session to the next writer, so connections and statements are not opened again per file. The number of files loaded at a time is given
+   * by {@link ConfigLoader#SYS_PROP_FILE_PARALLEL}.
+   * @param files
+   * @param ignoreFirstLine
+   * @param separator
+   */
+  private void loadFiles(List<File> files, final int ignoreFirstLine, final String separator)
+  {
+    int parallel = Math.min(files.size(), Integer.getInteger(ConfigLoader.SYS_PROP_FILE_PARALLEL, 
+        Runtime.getRuntime().availableProcessors()));
+    ExecutorService filePool = Executors.newFixedThreadPool(Math.max(parallel, 1), new ThreadFactory() {
+      private int n = 0;
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "fileReader-"+(n++));
+        t.setDaemon(true);
+        return t;
+      }
+    });
+    log.info("Loading "+files.size()+" file(s), "+parallel+" at a time");
+    try 
+    {
+      List<CSVLoader> fileLoaders = new ArrayList<>(files.size());
+      List<Future<Void>> fileLoads = new ArrayList<>(files.size());
+      for(final File file : files)
+      {
+        final CSVLoader fileLoader = new CSVLoader(this);
+        fileLoaders.add(fileLoader);
+        fileLoads.add(filePool.submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            fileLoader.load(file.getPath(), ignoreFirstLine, separator);
+            long time = Math.max(System.currentTimeMillis() - fileLoader.startTime, 1);
+            int records = fileLoader.line - 1;
+            log.info("Read "+records+" records from "+file.getName()+" in "+timeString(time)+"("+(records * 1000L / time)+" rec/s, "
+                +String.format("%.2f", file.length() / 1048.576 / time)+" MB/s)");
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> fileLoad : fileLoads) {
+        fileLoad.get();
+      }
+      for (CSVLoader fileLoader : fileLoaders) {
+        executorCount += fileLoader.executorCount;
+      }
+    } 
+    catch (ExecutionException e) {
+      log.log(Level.SEVERE, "File reading error", e.getCause());
+    } 
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    finally
+    {
+      filePool.shutdown();
+    }
+  }
   /**
    * 
    * @param fileName
@@ -235,8 +1020,27 @@ public class CSVLoader implements JobAllocator {
 	
   protected void load(String fileName, int ignoreFirstLine, String separator){
     startTime = System.currentTimeMillis();
-	  if(System.getProperty(ConfigLoader.SYS_PROP_BUFF_IO) != null)
+    int splits = Integer.getInteger(ConfigLoader.SYS_PROP_FILE_SPLITS, 1);
+    if(System.getProperty(ConfigLoader.SYS_PROP_CHECKPOINT) != null && openCheckpoint(fileName))
+      resume(fileName, ignoreFirstLine, separator);
+    else
+      loadFile(fileName, ignoreFirstLine, separator, splits);
+    if(checkpoint != null && readComplete)
+      checkpoint.finish(line - 1);
+  }
+  private void loadFile(String fileName, int ignoreFirstLine, String separator, int splits)
+  {
+    int delimiter = recordDelimiter(separator);
+    if(delimiter != -1)
+      //records may span lines, so the file is parsed on a single stream
+      loadByRecordIO(fileName, ignoreFirstLine, (byte) delimiter);
+    else if(isCompressed(fileName) || System.getProperty(ConfigLoader.SYS_PROP_FOLLOW) != null)
+      //compressed input is not seekable, and is decompressed on a single stream. A followed file is read on a single stream as well
+      loadByChannelIO(fileName, ignoreFirstLine, separator);
+    else if(System.getProperty(ConfigLoader.SYS_PROP_BUFF_IO) != null)
 	    loadByBufferedIO(fileName, ignoreFirstLine, separator);
+	  else if(splits > 1)
+	    loadBySplitIO(fileName, ignoreFirstLine, separator, splits);
 	  else
 	    loadByChannelIO(fileName, ignoreFirstLine, separator);
 	}
@@ -305,7 +1109,29 @@ public class CSVLoader implements JobAllocator {
     String sep = ConfigLoader.getConfig()
         .getProperty(ConfigLoader.LOAD_SEPARATOR);
     
-    load(loadFileName, ignoreFirstLine, sep);
+    List<File> files;
+    try {
+      files = resolveFiles(loadFileName);
+    } catch (IOException e) {
+      log.log(Level.SEVERE, "Unable to list input files", e);
+      allocate();
+      return;
+    }
+    if(System.getProperty(ConfigLoader.SYS_PROP_WATCH) != null || files.size() > 1)
+      idleSessions = new ArrayBlockingQueue<>(poolSize);
+    if(System.getProperty(ConfigLoader.SYS_PROP_WATCH) != null)
+    {
+      //the writer of this loader is not used
+      allocate();
+      watch(loadFileName, ignoreFirstLine, sep);
+    }
+    else if(files.size() == 1)
+      load(files.get(0).getPath(), ignoreFirstLine, sep);
+    else
+    {
+      allocate();
+      loadFiles(files, ignoreFirstLine, sep);
+    }
     
   }
 
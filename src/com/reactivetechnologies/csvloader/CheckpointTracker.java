@@ -0,0 +1,297 @@
+package com.reactivetechnologies.csvloader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+/**
+ * Tracks the committed records of a file load, and persists a checkpoint from which the load can be resumed.
+ * Records are committed by concurrent writers, not necessarily in order. The checkpoint is the watermark record,
+ * up to which all records have been committed (or given up as failed), along with its end offset in the file.
+ * <p>The checkpoint is saved as a properties file alongside the source file, or in the directory given by 
+ * {@link ConfigLoader#SYS_PROP_CHECKPOINT}. It is written to a temporary file, and moved in place, so that a
+ * crash does not leave a partial checkpoint. The source file identity (path and creation time) is recorded, so that
+ * a checkpoint is not applied to a different file of the same name.
+ * <p>When a file is loaded in split ranges, the records of each range are numbered from 1 within the range, and tracked
+ * by a range tracker. The watermark of the file then runs through the ranges in order, moving past a range once all
+ * its records are read and committed.
+ * <p>Once the file is read through, and all its records are committed, the checkpoint is deleted, as there is nothing
+ * left to resume.
+ */
+public class CheckpointTracker {
+
+  private static final Logger log = Logger.getLogger(CheckpointTracker.class.getSimpleName());
+  
+  static final String SUFFIX = ".ckpt", TMP_SUFFIX = SUFFIX + ".tmp";
+  private static final String KEY_FILE = "file", KEY_CREATED = "creationTime", KEY_INDEX = "index", KEY_OFFSET = "offset";
+  
+  private final File source, checkpoint;
+  private final long creationTime;
+  /**
+   * Committed runs of records beyond the watermark, keyed by the first record index. Each value is the
+   * last record index of the run, and the end offset of that record.
+   */
+  private final TreeMap<Integer, long[]> runs = new TreeMap<>();
+  private int index;
+  private long offset;
+  /**
+   * For a file loaded in split ranges, the range trackers in order. For a range tracker, the file tracker, and
+   * the number of records in the range once read, or -1.
+   */
+  private final List<CheckpointTracker> ranges = new ArrayList<>();
+  private final CheckpointTracker parent;
+  private int rangeRecords = -1;
+  /**
+   * Number of records in the file once read through, or -1.
+   */
+  private int records = -1;
+  private boolean complete;
+  /**
+   * 
+   * @param source the file being loaded
+   * @throws IOException
+   */
+  public CheckpointTracker(File source) throws IOException {
+    this.source = source.getAbsoluteFile();
+    String dir = System.getProperty(ConfigLoader.SYS_PROP_CHECKPOINT, "");
+    checkpoint = new File(dir.isEmpty() ? this.source.getParentFile() : new File(dir), source.getName() + SUFFIX);
+    creationTime = Files.readAttributes(source.toPath(), BasicFileAttributes.class).creationTime().toMillis();
+    parent = null;
+  }
+  private CheckpointTracker(CheckpointTracker parent) {
+    this.source = parent.source;
+    this.checkpoint = parent.checkpoint;
+    this.creationTime = parent.creationTime;
+    this.parent = parent;
+  }
+  /**
+   * A tracker for the next split range of the file. Records of the range are to be numbered from 1.
+   * @return
+   */
+  public synchronized CheckpointTracker newRange()
+  {
+    CheckpointTracker range = new CheckpointTracker(this);
+    ranges.add(range);
+    return range;
+  }
+  /**
+   * Marks a range as read, with the number of records in it, so that the watermark can move past the range 
+   * once they are committed.
+   * @param records
+   */
+  public void rangeRead(int records)
+  {
+    synchronized (this) {
+      rangeRecords = records;
+    }
+    if(parent != null)
+      parent.rangeAdvanced();
+  }
+  /**
+   * Moves the watermark through the ranges, and saves the checkpoint if it moves ahead. Range trackers notify
+   * outside of their own lock, so that the locks are always taken file tracker first.
+   */
+  private synchronized void rangeAdvanced()
+  {
+    int idx = 0;
+    long off = offset;
+    for(CheckpointTracker range : ranges)
+    {
+      int rangeIndex, records;
+      synchronized (range) {
+        rangeIndex = range.index;
+        records = range.rangeRecords;
+        if(rangeIndex > 0)
+          off = range.offset;
+      }
+      idx += rangeIndex;
+      if(records < 0 || rangeIndex < records)
+        break;
+    }
+    if(idx > index)
+    {
+      index = idx;
+      offset = off;
+      checkpointed();
+    }
+  }
+  /**
+   * Marks the file as read through, with the number of records in it, so that the checkpoint is deleted once
+   * they are all committed. Not to be invoked if reading failed, as the load is then to be resumed.
+   * @param records
+   */
+  public synchronized void finish(int records)
+  {
+    this.records = records;
+    if(index >= records)
+      checkpointed();
+  }
+  /**
+   * Whether the file is a checkpoint, or a checkpoint being written, rather than a file to load.
+   * @param file
+   * @return
+   */
+  public static boolean isCheckpoint(File file)
+  {
+    return file.getName().endsWith(SUFFIX) || file.getName().endsWith(TMP_SUFFIX);
+  }
+  /**
+   * Loads the saved checkpoint, if present and taken on the same source file.
+   * @return true if a checkpoint was restored
+   * @throws IOException
+   */
+  public synchronized boolean restore() throws IOException
+  {
+    if(!checkpoint.isFile())
+      return false;
+    
+    Properties props = new Properties();
+    try(InputStream in = new FileInputStream(checkpoint))
+    {
+      props.load(in);
+    }
+    if(!source.getPath().equals(props.getProperty(KEY_FILE)) || !String.valueOf(creationTime).equals(props.getProperty(KEY_CREATED)))
+    {
+      log.warning("Ignoring checkpoint "+checkpoint+", which was not taken on the current file "+source);
+      return false;
+    }
+    try {
+      index = Integer.parseInt(props.getProperty(KEY_INDEX));
+      offset = Long.parseLong(props.getProperty(KEY_OFFSET));
+    } catch (NumberFormatException e) {
+      throw new IOException("Invalid checkpoint "+checkpoint, e);
+    }
+    log.info("Restored checkpoint at Rec#"+index+", offset "+offset+" for "+source);
+    return true;
+  }
+  /**
+   * Marks a run of records as committed, and saves the checkpoint if the watermark moves ahead.
+   * @param indexes record indexes, in ascending order
+   * @param offsets end offset of each record
+   * @param count number of records
+   */
+  public void committed(int[] indexes, long[] offsets, int count)
+  {
+    boolean moved;
+    synchronized (this) 
+    {
+      int i = 0;
+      while(i < count)
+      {
+        int start = i;
+        while(i + 1 < count && indexes[i + 1] == indexes[i] + 1)
+          i++;
+        addRun(indexes[start], indexes[i], offsets[i]);
+        i++;
+      }
+      moved = advance();
+      if(moved && parent == null)
+        checkpointed();
+    }
+    if(moved && parent != null)
+      parent.rangeAdvanced();
+  }
+  private void addRun(int first, int last, long end)
+  {
+    Entry<Integer, long[]> prev = runs.floorEntry(first - 1);
+    if(prev != null && prev.getValue()[0] == first - 1)
+    {
+      //extends the previous run
+      first = prev.getKey();
+    }
+    long[] next = runs.remove(last + 1);
+    if(next != null)
+    {
+      last = (int) next[0];
+      end = next[1];
+    }
+    runs.put(first, new long[]{last, end});
+  }
+  private boolean advance()
+  {
+    boolean moved = false;
+    Entry<Integer, long[]> first;
+    while((first = runs.firstEntry()) != null && first.getKey() <= index + 1)
+    {
+      runs.pollFirstEntry();
+      if(first.getValue()[0] > index)
+      {
+        index = (int) first.getValue()[0];
+        offset = first.getValue()[1];
+        moved = true;
+      }
+    }
+    return moved;
+  }
+  /**
+   * Saves the checkpoint as moved, or deletes it if the load is complete.
+   */
+  private void checkpointed()
+  {
+    if(complete)
+      return;
+    if(records < 0 || index < records)
+    {
+      save();
+      return;
+    }
+    complete = true;
+    try {
+      Files.deleteIfExists(checkpoint.toPath());
+      log.fine("Load of "+source+" is complete. Deleted checkpoint "+checkpoint);
+    } catch (IOException e) {
+      log.log(Level.WARNING, "Unable to delete checkpoint "+checkpoint, e);
+    }
+  }
+  private void save()
+  {
+    Properties props = new Properties();
+    props.setProperty(KEY_FILE, source.getPath());
+    props.setProperty(KEY_CREATED, String.valueOf(creationTime));
+    props.setProperty(KEY_INDEX, String.valueOf(index));
+    props.setProperty(KEY_OFFSET, String.valueOf(offset));
+    File tmp = new File(checkpoint.getParentFile(), source.getName() + TMP_SUFFIX);
+    try 
+    {
+      try(OutputStream out = new FileOutputStream(tmp))
+      {
+        props.store(out, null);
+      }
+      try {
+        Files.move(tmp.toPath(), checkpoint.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      log.log(Level.WARNING, "Unable to save checkpoint "+checkpoint, e);
+    }
+  }
+  /**
+   * Index of the last record up to which all records are committed, or 0 if none.
+   * @return
+   */
+  public synchronized int getIndex() {
+    return index;
+  }
+  /**
+   * End offset of the watermark record, or -1 if not known. 
+   * @return
+   */
+  public synchronized long getOffset() {
+    return offset;
+  }
+  
+}
@@ -15,6 +15,8 @@ public class ConfigLoader {
 	
 	public static final String LOAD_SEPARATOR = "LOAD_SEPARATOR"; 
 	public static final String LOAD_BATCH_SIZE = "LOAD_BATCH_SIZE";
+	public static final String LOAD_COMMIT_SIZE = "LOAD_COMMIT_SIZE";
+	public static final String LOAD_COMMIT_INTERVAL = "LOAD_COMMIT_INTERVAL";
 	public static final String LOAD_PER_THREAD = "LOAD_PER_THREAD";
 	public static final String LOAD_FILE_NAME = "LOAD_FILE_NAME";
 	public static final String LOAD_SQL_TEMPLATE = "LOAD_SQL_TEMPLATE";
@@ -49,15 +51,40 @@ public class ConfigLoader {
 	public static final String PGSQL_DB_USERNAME = "PGSQL_DB_USERNAME";
 	public static final String PGSQL_DB_PASSWORD = "PGSQL_DB_PASSWORD";
 	
-	public static final String[] ISO_8601_DATE_FORMATS = {"yyyy-mm-dd HH:mm","yyyy-mm-dd HH:mm:ss", "yyyy-mm-dd HH:mmZ", "yyyy-mm-dd HH:mm:ssZ", "yyyy-mm-dd'T'HH:mm",
-	    "yyyy-mm-dd'T'HH:mmZ", "yyyy-mm-dd'T'HH:mm:ss", "yyyy-mm-dd'T'HH:mm:ssZ", "yyyy-mm-dd", "yyyy-mm-ddZ", "yyyy-mm", "yyyy"};
+	public static final String[] ISO_8601_DATE_FORMATS = {"yyyy-MM-dd HH:mm","yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd HH:mmZ", "yyyy-MM-dd HH:mm:ssZ", "yyyy-MM-dd'T'HH:mm",
+	    "yyyy-MM-dd'T'HH:mmZ", "yyyy-MM-dd'T'HH:mm:ss", "yyyy-MM-dd'T'HH:mm:ssZ", "yyyy-MM-dd", "yyyy-MM-ddZ", "yyyy-MM", "yyyy"};
   public static final String COMMIT_ON_BATCH_FAIL = "COMMIT_ON_BATCH_FAIL";
   
   public static final String SYS_PROP_INORDER = "proc.inorder";
   //public static final String SYS_PROP_INORDER_QSIZE = "proc.inorder.qsize";
   public static final String SYS_PROP_MMAP_IO = "mem.mapped";
   public static final String SYS_PROP_MMAP_SIZE = "mmap.size";
+  public static final String SYS_PROP_MMAP_INPLACE = "mmap.inplace";
+  public static final String SYS_PROP_CHUNK_SIZE = "chunk.size";
+  public static final String SYS_PROP_BUFF_DIRECT = "buff.direct";
+  public static final String SYS_PROP_READ_AHEAD = "read.ahead";
+  public static final String SYS_PROP_IO_AUTOTUNE = "io.autotune";
+  public static final String SYS_PROP_ASYNC_IO = "async.io";
+  public static final String SYS_PROP_INFLATE_THREADS = "inflate.threads";
   public static final String SYS_PROP_BUFF_IO = "buff.io";
+  public static final String SYS_PROP_FILE_SPLITS = "file.splits";
+  public static final String SYS_PROP_FILE_PARALLEL = "file.parallel";
+  public static final String SYS_PROP_WATCH = "watch";
+  public static final String SYS_PROP_FOLLOW = "follow";
+  public static final String SYS_PROP_CHECKPOINT = "checkpoint";
+  public static final String SYS_PROP_RESUME = "resume";
+  public static final String SYS_PROP_CSV_RFC4180 = "csv.rfc4180";
+  public static final String SYS_PROP_PARSE_THREADS = "parse.threads";
+  public static final String SYS_PROP_COLUMNAR = "columnar";
+  public static final String SYS_PROP_BATCH_TARGET = "batch.target.millis";
+  public static final String SYS_PROP_BATCH_MIN = "batch.min";
+  public static final String SYS_PROP_BATCH_MAX = "batch.max";
+  public static final String SYS_PROP_INSERT_ROWS = "insert.rows";
+  public static final String SYS_PROP_BULK_LOAD = "bulk.load";
+  public static final String SYS_PROP_WATCH_SETTLE = "watch.settle";
+  public static final String SYS_PROP_RING_CAPACITY = "ring.capacity";
+  public static final String SYS_PROP_RING_BATCH = "ring.batch";
+  public static final String SYS_PROP_RING_WAIT = "ring.wait";
   public static final String SYS_PROP_THREADS = "max.thread";
   public static final String SYS_PROP_SKIP_BLK_FLD = "skip.blank.field";
   public static final String SYS_PROP_SKIP_INV_FLD = "skip.invalid.field";
@@ -71,6 +98,22 @@ public class ConfigLoader {
 	{
 	  return Integer.valueOf(ConfigLoader.getConfig().getProperty(ConfigLoader.LOAD_BATCH_SIZE, "100"));
 	}
+	/**
+	 * Records per commit, or 0 to commit every batch.
+	 * @return
+	 */
+	public static int getCommitSize()
+	{
+	  return Integer.valueOf(ConfigLoader.getConfig().getProperty(ConfigLoader.LOAD_COMMIT_SIZE, "0"));
+	}
+	/**
+	 * Millis between commits, or 0 to commit every batch.
+	 * @return
+	 */
+	public static long getCommitInterval()
+	{
+	  return Long.valueOf(ConfigLoader.getConfig().getProperty(ConfigLoader.LOAD_COMMIT_INTERVAL, "0"));
+	}
 	
 	private static Properties config = null;
 	
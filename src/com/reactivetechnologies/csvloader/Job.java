@@ -8,6 +8,8 @@ public class Job implements Serializable{
 	private int jobIndex;
 	Object jobDefn = null;
 	private String payload;
+	private String delimiter;
+	private long offset = -1;
 	public Object getJobDefn(){
 		return jobDefn;
 	}
@@ -20,10 +22,52 @@ public class Job implements Serializable{
   public void setJobIndex(int jobIndex) {
     this.jobIndex = jobIndex;
   }
+  /**
+   * Offset in the source file just past this record, or -1 if not known. A load can be resumed from 
+   * this offset, to continue after this record.
+   * @return
+   */
+  public long getOffset() {
+    return offset;
+  }
+  public void setOffset(long offset) {
+    this.offset = offset;
+  }
+  /**
+   * Number of records carried by this job.
+   * @return
+   */
+  public int getRecordCount() {
+    return 1;
+  }
+  /**
+   * The source text of this record, for error reporting. If not kept, it is rebuilt by joining the field values 
+   * on the delimiter, which gives back the source line when the fields were split on that literal delimiter.
+   * @return the source text, or null if not known
+   */
   public String getPayload() {
+    if(payload == null && delimiter != null && jobDefn instanceof String[])
+    {
+      String[] values = (String[]) jobDefn;
+      StringBuilder s = new StringBuilder();
+      for(int i = 0; i < values.length; i++)
+      {
+        if(i > 0)
+          s.append(delimiter);
+        s.append(values[i]);
+      }
+      return s.toString();
+    }
     return payload;
   }
   public void setPayload(String payload) {
     this.payload = payload;
   }
+  /**
+   * Set the literal delimiter the field values were split on, to rebuild the payload from, instead of keeping it.
+   * @param delimiter
+   */
+  public void setDelimiter(String delimiter) {
+    this.delimiter = delimiter;
+  }
 }
@@ -0,0 +1,92 @@
+package com.reactivetechnologies.csvloader;
+/**
+ * Refers to the records of a file loaded in split ranges, in messages. The ranges are read concurrently, so the records
+ * of a range after the first are indexed from 1 within the range, as the file index of its first record is not known
+ * till the earlier ranges are read. A record is referred to by its file index once that is known, and by its range and 
+ * index in the range till then, so that a reference is never ambiguous.
+ * <p>Same as the range trackers of {@link CheckpointTracker}, the ranges are chained in order, and the file index of 
+ * a range is resolved from the records read in the earlier ranges.
+ */
+public class RecordNumbering {
+
+  private final RecordNumbering previous;
+  private final int ordinal, firstIndex;
+  /**
+   * Number of records in the range once read, or -1.
+   */
+  private volatile int records = -1;
+  /**
+   * Numbering of the first range, whose records are indexed as in the file.
+   * @param firstIndex index of the first record of the range
+   */
+  public RecordNumbering(int firstIndex) {
+    this.previous = null;
+    this.ordinal = 0;
+    this.firstIndex = firstIndex;
+  }
+  private RecordNumbering(RecordNumbering previous) {
+    this.previous = previous;
+    this.ordinal = previous.ordinal + 1;
+    this.firstIndex = 1;
+  }
+  /**
+   * Numbering of the next range, whose records are indexed from 1.
+   * @return
+   */
+  public RecordNumbering next()
+  {
+    return new RecordNumbering(this);
+  }
+  /**
+   * Marks the range as read, with the number of records in it, so that the file indexes of the next range are known
+   * once the earlier ranges are read too.
+   * @param records
+   */
+  public void rangeRead(int records)
+  {
+    this.records = records;
+  }
+  /**
+   * Offset of the file indexes from the indexes in the range.
+   * @return the offset, or -1 if not known yet
+   */
+  private int base()
+  {
+    if(previous == null)
+      return 0;
+    int prevBase = previous.base(), prevRecords = previous.records;
+    if(prevBase < 0 || prevRecords < 0)
+      return -1;
+    return prevBase + previous.firstIndex - 1 + prevRecords;
+  }
+  /**
+   * A reference to the record with the given index in the range, for messages.
+   * @param index
+   * @return
+   */
+  public String format(int index)
+  {
+    int base = base();
+    return base >= 0 ? "Rec#"+(base + index) : "Rec#"+index+" of range #"+ordinal;
+  }
+  /**
+   * A reference to a record, as numbered if given, else as indexed.
+   * @param numbering
+   * @param index
+   * @return
+   */
+  public static String format(RecordNumbering numbering, int index)
+  {
+    return numbering != null ? numbering.format(index) : "Rec#"+index;
+  }
+  /**
+   * The range, and its records as file indexes once known.
+   */
+  @Override
+  public String toString() {
+    int base = base(), count = records;
+    if(base < 0 || count < 0)
+      return "Range #"+ordinal;
+    return "Range #"+ordinal+" is "+(count == 0 ? "empty" : "Rec#"+(base + firstIndex)+" to Rec#"+(base + firstIndex + count - 1));
+  }
+}
@@ -0,0 +1,111 @@
+/* ============================================================================
+*
+* FILE: BatchSizeController.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.db;
+
+import java.util.logging.Logger;
+/**
+ * Adapts the batch size of a session to the time taken for executing (and committing) a batch. The time per record 
+ * is measured on every batch, and averaged. The next batch size is the number of records expected to take the 
+ * target time, within the min/max bounds. The size changes by no more than a factor of 2 per batch, so that a 
+ * single slow batch does not collapse it.
+ * <p>As the fixed cost of a round trip is spread across more records in a larger batch, a size that meets the 
+ * target latency is also close to the best throughput for that latency.
+ */
+class BatchSizeController
+{
+  private static final Logger log = Logger.getLogger(BatchSizeController.class.getSimpleName());
+  
+  public static final int DEFAULT_MIN_SIZE = 10;
+  public static final int DEFAULT_MAX_SIZE = 10000;
+  /**
+   * Weight of the last batch in the average time per record.
+   */
+  static final double SMOOTHING = 0.3;
+  
+  private final long targetNanos;
+  private int minSize, maxSize;
+  private int step = 1;
+  private double nanosPerRecord = -1;
+  private int size;
+  /**
+   * 
+   * @param targetMillis target time to execute a batch
+   * @param minSize
+   * @param maxSize
+   * @param initialSize
+   */
+  BatchSizeController(long targetMillis, int minSize, int maxSize, int initialSize) {
+    if(targetMillis <= 0)
+      throw new IllegalArgumentException("Target batch time should be greater than 0");
+    if(minSize <= 0 || maxSize < minSize)
+      throw new IllegalArgumentException("Batch size bounds should be 0 < min <= max");
+    this.targetNanos = targetMillis * 1000000;
+    this.minSize = minSize;
+    this.maxSize = maxSize;
+    size = Math.max(minSize, Math.min(maxSize, initialSize));
+  }
+  /**
+   * Records the time taken for a batch.
+   * @param records number of records in the batch
+   * @param elapsedNanos time taken to execute and commit the batch
+   * @return the size for the next batch
+   */
+  int update(int records, long elapsedNanos)
+  {
+    if(records <= 0)
+      return size;
+    double perRecord = (double) Math.max(elapsedNanos, 1) / records;
+    nanosPerRecord = nanosPerRecord < 0 ? perRecord : SMOOTHING * perRecord + (1 - SMOOTHING) * nanosPerRecord;
+    
+    double next = targetNanos / nanosPerRecord;
+    next = Math.max(size / 2.0, Math.min(size * 2.0, next));
+    int nextSize = Math.max(minSize, (int) Math.min(maxSize, next) / step * step);
+    if(nextSize != size)
+      log.fine("["+Thread.currentThread().getName()+"] Batch of "+records+" took "+(elapsedNanos / 1000000)+" ms. Batch size "+size+" -> "+nextSize);
+    size = nextSize;
+    return size;
+  }
+  int getSize() {
+    return size;
+  }
+  /**
+   * Keeps the sizes a multiple of the given number of records, for e.g. the rows per multi row insert, so that a batch 
+   * is made up of whole row groups. The min bound is rounded up to the step, and the max bound down.
+   * @param step
+   */
+  void setStep(int step)
+  {
+    if(step <= 1)
+      return;
+    this.step = step;
+    minSize = (minSize + step - 1) / step * step;
+    maxSize = Math.max(minSize, maxSize / step * step);
+    size = Math.max(minSize, Math.min(maxSize, size) / step * step);
+  }
+}
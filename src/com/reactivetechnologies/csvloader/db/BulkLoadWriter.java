@@ -0,0 +1,57 @@
+/* ============================================================================
+*
+* FILE: BulkLoadWriter.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.db;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import com.reactivetechnologies.csvloader.ConfigLoader;
+/**
+ * A writer that loads each batch with the bulk load command of the target database, in place of batched 
+ * insert statements. For PostgreSQL, the records are streamed as <code>COPY .. FROM STDIN</code> text through 
+ * the driver's <code>CopyManager</code>. For MySQL, the records are fed to <code>LOAD DATA LOCAL INFILE</code> through 
+ * the driver's input stream hook on the statement. Batches are formatted in memory, per writer. Field values are 
+ * converted by column type as with inserts, and the records loaded are reported into the shared counter on commit.
+ * <p>Falls back to insert statements if the target database or the driver does not support it, or with upsert.
+ * @see ConfigLoader#SYS_PROP_BULK_LOAD
+ */
+public class BulkLoadWriter extends DatabaseWriter {
+
+  public BulkLoadWriter(int jobCapacity, AtomicLong counter, DataSource ds) {
+    super(jobCapacity, counter, ds);
+  }
+  @Override
+  protected DatabaseSession newSession() {
+    DatabaseSession session = super.newSession();
+    session.setBulkLoad(true);
+    return session;
+  }
+
+}
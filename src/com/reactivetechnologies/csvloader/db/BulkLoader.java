@@ -0,0 +1,255 @@
+/* ============================================================================
+*
+* FILE: BulkLoader.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Wrapper;
+import java.util.logging.Logger;
+
+import com.reactivetechnologies.csvloader.ConfigLoader;
+/**
+ * Loads batches of records with the bulk load command of the target database, rather than with insert statements.
+ * Records are formatted into a buffer as tab separated text, with backslash escapes and <code>\N</code> for NULL,
+ * which is the default text format of both PostgreSQL <code>COPY</code> and MySQL <code>LOAD DATA</code>. The buffer is 
+ * sent to the database in a single command per batch, and is reused for the next batch. No temporary files are written.
+ * <p>The driver specific API is invoked via reflection, so that the driver is not needed to build.
+ * <p><b>NOTE:</b> This class is not thread safe. It is created per session.
+ * @see ConfigLoader#SYS_PROP_BULK_LOAD
+ */
+abstract class BulkLoader
+{
+  private static final Logger log = Logger.getLogger(BulkLoader.class.getSimpleName());
+  
+  final StringBuilder buffer = new StringBuilder();
+  /**
+   * Sends the buffered records to the database, and clears the buffer.
+   * @return records loaded
+   * @throws SQLException
+   */
+  long execute() throws SQLException
+  {
+    if(buffer.length() == 0)
+      return 0;
+    try {
+      return load(buffer.toString());
+    } finally {
+      buffer.setLength(0);
+    }
+  }
+  /**
+   * Runs the bulk load command reading the given records.
+   * @param records
+   * @return records loaded
+   * @throws SQLException
+   */
+  abstract long load(String records) throws SQLException;
+  /**
+   * Whether timestamps are formatted with the zone offset. Else they are formatted in local time only.
+   * @return
+   */
+  boolean isZoneOffset() {
+    return true;
+  }
+  /**
+   * Releases any statement held.
+   * @throws SQLException
+   */
+  void close() throws SQLException {
+    
+  }
+  /**
+   * A bulk loader for the target database, if supported by the connection.
+   * @param conn
+   * @param table
+   * @param columns comma separated column names
+   * @return null if bulk load is not supported
+   * @throws SQLException
+   */
+  static BulkLoader open(Connection conn, String table, String columns) throws SQLException
+  {
+    String target = ConfigLoader.getConfig().getProperty(ConfigLoader.TARGET_DATABASE);
+    BulkLoader loader = null;
+    if(ConfigLoader.PGSQL.equals(target))
+      loader = PgCopy.open(conn, "COPY "+table+"("+columns+") FROM STDIN");
+    else if(ConfigLoader.MYSQL.equals(target))
+      loader = MySqlLoadData.open(conn, "LOAD DATA LOCAL INFILE 'stream' INTO TABLE "+table
+          +" CHARACTER SET utf8mb4 FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' ("+columns+")");
+    
+    if(loader == null)
+      log.warning("Bulk load is not supported for "+target+" with this driver. Loading with insert statements");
+    return loader;
+  }
+  /**
+   * The driver specific connection or statement, if the given one is, or wraps, one of the given class.
+   * @param wrapper
+   * @param className
+   * @return null if not found
+   * @throws SQLException
+   */
+  static Object unwrap(Wrapper wrapper, String className) throws SQLException
+  {
+    Class<?> type;
+    try {
+      type = Class.forName(className);
+    } catch (ClassNotFoundException e) {
+      return null;
+    }
+    if(type.isInstance(wrapper))
+      return wrapper;
+    return wrapper.isWrapperFor(type) ? wrapper.unwrap(type) : null;
+  }
+  static SQLException sqlException(InvocationTargetException e)
+  {
+    return e.getCause() instanceof SQLException ? (SQLException) e.getCause() : new SQLException(e.getCause());
+  }
+  /**
+   * <code>COPY .. FROM STDIN</code> via the <code>CopyManager</code> of the PostgreSQL driver.
+   */
+  private static class PgCopy extends BulkLoader
+  {
+    private final Object copyManager;
+    private final Method copyIn;
+    private final String sql;
+    private PgCopy(Object copyManager, Method copyIn, String sql) {
+      this.copyManager = copyManager;
+      this.copyIn = copyIn;
+      this.sql = sql;
+    }
+    static PgCopy open(Connection conn, String sql) throws SQLException
+    {
+      Object pgConn = unwrap(conn, "org.postgresql.PGConnection");
+      if(pgConn == null)
+        return null;
+      try 
+      {
+        Method getCopyAPI = Class.forName("org.postgresql.PGConnection").getMethod("getCopyAPI");
+        Object copyManager = getCopyAPI.invoke(pgConn);
+        Method copyIn = getCopyAPI.getReturnType().getMethod("copyIn", String.class, Reader.class);
+        log.info(sql);
+        return new PgCopy(copyManager, copyIn, sql);
+      } catch (InvocationTargetException e) {
+        throw sqlException(e);
+      } catch (ReflectiveOperationException e) {
+        log.warning("PostgreSQL CopyManager not available: "+e);
+        return null;
+      }
+    }
+    @Override
+    long load(String records) throws SQLException {
+      try {
+        return (Long) copyIn.invoke(copyManager, sql, new StringReader(records));
+      } catch (InvocationTargetException e) {
+        throw sqlException(e);
+      } catch (IllegalAccessException e) {
+        throw new SQLException(e);
+      }
+    }
+  }
+  /**
+   * <code>LOAD DATA LOCAL INFILE</code>, with the file content read from a stream set on the statement via
+   * <code>setLocalInfileInputStream</code> of the MySQL driver. Local infile should be allowed on the connection
+   * (<code>allowLoadLocalInfile=true</code>) and on the server (<code>local_infile=ON</code>).
+   * <p>Note that with <code>LOCAL</code>, MySQL reports data errors as warnings, and skips duplicate keys, rather than 
+   * failing the load. Timestamps are formatted in local time, as the MySQL datetime types do not take a zone offset.
+   */
+  private static class MySqlLoadData extends BulkLoader
+  {
+    /**
+     * The statement interface with the stream hook, in Connector/J 8 and 5.1.
+     */
+    private static final String[] STATEMENT_CLASSES = {"com.mysql.cj.jdbc.JdbcStatement", "com.mysql.jdbc.Statement"};
+    private final Statement stmt;
+    private final Object mysqlStmt;
+    private final Method setStream;
+    private final String sql;
+    private MySqlLoadData(Statement stmt, Object mysqlStmt, Method setStream, String sql) {
+      this.stmt = stmt;
+      this.mysqlStmt = mysqlStmt;
+      this.setStream = setStream;
+      this.sql = sql;
+    }
+    static MySqlLoadData open(Connection conn, String sql) throws SQLException
+    {
+      Statement stmt = conn.createStatement();
+      for(String className : STATEMENT_CLASSES)
+      {
+        Object mysqlStmt = unwrap(stmt, className);
+        if(mysqlStmt != null)
+        {
+          try 
+          {
+            Method setStream = Class.forName(className).getMethod("setLocalInfileInputStream", InputStream.class);
+            log.info(sql);
+            return new MySqlLoadData(stmt, mysqlStmt, setStream, sql);
+          } catch (ReflectiveOperationException e) {
+            log.warning("MySQL local infile stream not available: "+e);
+          }
+        }
+      }
+      stmt.close();
+      return null;
+    }
+    @Override
+    long load(String records) throws SQLException {
+      setStream(new ByteArrayInputStream(records.getBytes(StandardCharsets.UTF_8)));
+      try {
+        return stmt.executeUpdate(sql);
+      } finally {
+        setStream(null);
+      }
+    }
+    private void setStream(InputStream in) throws SQLException
+    {
+      try {
+        setStream.invoke(mysqlStmt, in);
+      } catch (InvocationTargetException e) {
+        throw sqlException(e);
+      } catch (IllegalAccessException e) {
+        throw new SQLException(e);
+      }
+    }
+    @Override
+    boolean isZoneOffset() {
+      return false;
+    }
+    @Override
+    void close() throws SQLException {
+      stmt.close();
+    }
+  }
+}
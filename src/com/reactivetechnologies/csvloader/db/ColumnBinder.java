@@ -0,0 +1,465 @@
+/* ============================================================================
+*
+* FILE: ColumnBinder.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.db;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Map;
+/**
+ * Converts field values to the type of a column, and binds them to the insert statement. The binders of a table
+ * are created once, after the metadata is read, so that the type of a column is not looked up for every field. 
+ * Numbers are parsed to primitives, without creating objects on the way.
+ * <p>For bulk loads, the converted values are formatted as text instead, in the format of {@link BulkLoader}.
+ * <p><b>NOTE:</b> Binders are not thread safe. They are created per session.
+ */
+abstract class ColumnBinder
+{
+  final ColumnMeta column;
+  ColumnBinder(ColumnMeta column) {
+    this.column = column;
+  }
+  /**
+   * Binds a value to a parameter.
+   * @param stmt
+   * @param index parameter index
+   * @param value
+   * @return false if the value could not be converted, and nothing was bound
+   * @throws SQLException
+   */
+  abstract boolean bind(PreparedStatement stmt, int index, String value) throws SQLException;
+  /**
+   * Binds a field of a columnar batch to a parameter. The field should not be null.
+   * @param stmt
+   * @param index parameter index
+   * @param batch
+   * @param col column in the batch
+   * @param row
+   * @return false if the value could not be converted, and nothing was bound
+   * @throws SQLException
+   */
+  boolean bind(PreparedStatement stmt, int index, ColumnarBatch batch, int col, int row) throws SQLException {
+    return bind(stmt, index, batch.getText(col, row));
+  }
+  /**
+   * Formats a value as bulk load text. A null value is formatted as <code>\N</code>.
+   * @param out
+   * @param value
+   * @return false if the value could not be converted, and nothing was appended
+   */
+  abstract boolean format(StringBuilder out, String value);
+  /**
+   * Formats a field of a columnar batch as bulk load text. The field should not be null.
+   * @param out
+   * @param batch
+   * @param col column in the batch
+   * @param row
+   * @return false if the value could not be converted, and nothing was appended
+   */
+  boolean format(StringBuilder out, ColumnarBatch batch, int col, int row) {
+    return format(out, batch.getText(col, row));
+  }
+  /**
+   * Whether date/time values are formatted with the zone offset, for the types that take one. Else they are 
+   * formatted in local time only.
+   * @param zoneOffset
+   */
+  void setZoneOffset(boolean zoneOffset) {
+    
+  }
+  /**
+   * What a value that cannot be converted is, for logging.
+   * @return
+   */
+  String invalid() {
+    return "invalid number";
+  }
+  /**
+   * The binders for the columns of a table, by parameter index - 1. Columns missing from the metadata have
+   * no binder.
+   * @param dataTypes columns by ordinal
+   * @param dateFormats formats to parse date/time values
+   * @param isoDates if the date formats are the default ISO 8601 formats
+   * @return
+   */
+  static ColumnBinder[] forColumns(Map<Integer, ColumnMeta> dataTypes, SimpleDateFormat[] dateFormats, boolean isoDates)
+  {
+    ColumnBinder[] binders = new ColumnBinder[dataTypes.size()];
+    for(int i = 0; i < binders.length; i++)
+    {
+      ColumnMeta col = dataTypes.get(i+1);
+      if(col == null)
+        continue;
+      if(col.type == Integer.class)
+        binders[i] = new IntBinder(col);
+      else if(col.type == Long.class)
+        binders[i] = new LongBinder(col);
+      else if(col.type == Double.class)
+        binders[i] = new DoubleBinder(col);
+      else if(col.type == Date.class || col.type == Time.class || col.type == Timestamp.class)
+        binders[i] = new DateBinder(col, new DateParser(dateFormats, isoDates));
+      else
+        binders[i] = new TextBinder(col);
+    }
+    return binders;
+  }
+  
+  private static class IntBinder extends ColumnBinder
+  {
+    private final long[] parsed = new long[1];
+    IntBinder(ColumnMeta column) {
+      super(column);
+    }
+    @Override
+    boolean bind(PreparedStatement stmt, int index, String value) throws SQLException {
+      if(value == null || !parseLong(value, 0, value.length(), parsed, 0))
+        return false;
+      stmt.setInt(index, (int) parsed[0]);
+      return true;
+    }
+    @Override
+    boolean bind(PreparedStatement stmt, int index, ColumnarBatch batch, int col, int row) throws SQLException {
+      stmt.setInt(index, (int) batch.getLong(col, row));
+      return true;
+    }
+    @Override
+    boolean format(StringBuilder out, String value) {
+      if(value == null || !parseLong(value, 0, value.length(), parsed, 0))
+        return false;
+      out.append((int) parsed[0]);
+      return true;
+    }
+    @Override
+    boolean format(StringBuilder out, ColumnarBatch batch, int col, int row) {
+      out.append((int) batch.getLong(col, row));
+      return true;
+    }
+  }
+  private static class LongBinder extends ColumnBinder
+  {
+    private final long[] parsed = new long[1];
+    LongBinder(ColumnMeta column) {
+      super(column);
+    }
+    @Override
+    boolean bind(PreparedStatement stmt, int index, String value) throws SQLException {
+      if(value == null || !parseLong(value, 0, value.length(), parsed, 0))
+        return false;
+      stmt.setLong(index, parsed[0]);
+      return true;
+    }
+    @Override
+    boolean bind(PreparedStatement stmt, int index, ColumnarBatch batch, int col, int row) throws SQLException {
+      stmt.setLong(index, batch.getLong(col, row));
+      return true;
+    }
+    @Override
+    boolean format(StringBuilder out, String value) {
+      if(value == null || !parseLong(value, 0, value.length(), parsed, 0))
+        return false;
+      out.append(parsed[0]);
+      return true;
+    }
+    @Override
+    boolean format(StringBuilder out, ColumnarBatch batch, int col, int row) {
+      out.append(batch.getLong(col, row));
+      return true;
+    }
+  }
+  private static class DoubleBinder extends ColumnBinder
+  {
+    private final double[] parsed = new double[1];
+    DoubleBinder(ColumnMeta column) {
+      super(column);
+    }
+    @Override
+    boolean bind(PreparedStatement stmt, int index, String value) throws SQLException {
+      if(value == null || !parseDouble(value, 0, value.length(), parsed, 0))
+        return false;
+      stmt.setDouble(index, parsed[0]);
+      return true;
+    }
+    @Override
+    boolean bind(PreparedStatement stmt, int index, ColumnarBatch batch, int col, int row) throws SQLException {
+      stmt.setDouble(index, batch.getDouble(col, row));
+      return true;
+    }
+    @Override
+    boolean format(StringBuilder out, String value) {
+      if(value == null || !parseDouble(value, 0, value.length(), parsed, 0))
+        return false;
+      out.append(parsed[0]);
+      return true;
+    }
+    @Override
+    boolean format(StringBuilder out, ColumnarBatch batch, int col, int row) {
+      out.append(batch.getDouble(col, row));
+      return true;
+    }
+  }
+  private static class DateBinder extends ColumnBinder
+  {
+    private final DateParser parser;
+    private final long[] parsed = new long[1];
+    DateBinder(ColumnMeta column, DateParser parser) {
+      super(column);
+      this.parser = parser;
+    }
+    @Override
+    boolean bind(PreparedStatement stmt, int index, String value) throws SQLException {
+      if(value == null || !parser.parse(value, parsed, 0))
+        return false;
+      bindMillis(stmt, index, parsed[0]);
+      return true;
+    }
+    @Override
+    boolean bind(PreparedStatement stmt, int index, ColumnarBatch batch, int col, int row) throws SQLException {
+      bindMillis(stmt, index, batch.getMillis(col, row));
+      return true;
+    }
+    private void bindMillis(PreparedStatement stmt, int index, long millis) throws SQLException {
+      if(column.type == Date.class)
+        stmt.setDate(index, new Date(millis));
+      else if(column.type == Time.class)
+        stmt.setTime(index, new Time(millis));
+      else
+        stmt.setTimestamp(index, new Timestamp(millis));
+    }
+    private Calendar calendar;
+    private boolean zoneOffset = true;
+    @Override
+    void setZoneOffset(boolean zoneOffset) {
+      this.zoneOffset = zoneOffset;
+    }
+    /**
+     * Formats the value in the local time zone, as the driver does when binding. A timestamp carries
+     * the zone offset, if enabled, which is ignored by columns without a time zone.
+     */
+    @Override
+    boolean format(StringBuilder out, String value) {
+      if(value == null || !parser.parse(value, parsed, 0))
+        return false;
+      formatMillis(out, parsed[0]);
+      return true;
+    }
+    @Override
+    boolean format(StringBuilder out, ColumnarBatch batch, int col, int row) {
+      formatMillis(out, batch.getMillis(col, row));
+      return true;
+    }
+    private void formatMillis(StringBuilder out, long millis) {
+      if(calendar == null)
+        calendar = new GregorianCalendar();
+      calendar.setTimeInMillis(millis);
+      if(column.type != Time.class)
+      {
+        pad(out, calendar.get(Calendar.YEAR), 4).append('-');
+        pad(out, calendar.get(Calendar.MONTH) + 1, 2).append('-');
+        pad(out, calendar.get(Calendar.DAY_OF_MONTH), 2);
+        if(column.type == Date.class)
+          return;
+        out.append(' ');
+      }
+      pad(out, calendar.get(Calendar.HOUR_OF_DAY), 2).append(':');
+      pad(out, calendar.get(Calendar.MINUTE), 2).append(':');
+      pad(out, calendar.get(Calendar.SECOND), 2).append('.');
+      pad(out, calendar.get(Calendar.MILLISECOND), 3);
+      if(column.type == Timestamp.class && zoneOffset)
+      {
+        int offset = (calendar.get(Calendar.ZONE_OFFSET) + calendar.get(Calendar.DST_OFFSET)) / 60000;
+        out.append(offset < 0 ? '-' : '+');
+        pad(out, Math.abs(offset) / 60, 2).append(':');
+        pad(out, Math.abs(offset) % 60, 2);
+      }
+    }
+    @Override
+    String invalid() {
+      return "unparseable date";
+    }
+  }
+  private static class TextBinder extends ColumnBinder
+  {
+    TextBinder(ColumnMeta column) {
+      super(column);
+    }
+    @Override
+    boolean bind(PreparedStatement stmt, int index, String value) throws SQLException {
+      stmt.setString(index, (value != null && value.length() > column.size) ? value.substring(0, column.size) : value);
+      return true;
+    }
+    @Override
+    boolean format(StringBuilder out, String value) {
+      if(value == null)
+        out.append(NULL);
+      else
+        escape(out, value, 0, Math.min(value.length(), column.size));
+      return true;
+    }
+  }
+  
+  /**
+   * NULL in bulk load text.
+   */
+  static final String NULL = "\\N";
+  /**
+   * Appends text, escaping the backslash, and the tab and line terminators of bulk load text.
+   * @param out
+   * @param s
+   * @param start
+   * @param end
+   */
+  static void escape(StringBuilder out, String s, int start, int end)
+  {
+    for(int i = start; i < end; i++)
+    {
+      char c = s.charAt(i);
+      switch(c)
+      {
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\r':
+          out.append("\\r");
+          break;
+        default:
+          out.append(c);
+      }
+    }
+  }
+  private static StringBuilder pad(StringBuilder out, int value, int width)
+  {
+    for(int digits = 1, limit = 10; digits < width; digits++, limit *= 10)
+    {
+      if(value < limit)
+        out.append('0');
+    }
+    return out.append(value);
+  }
+  /**
+   * Parses an integer, ignoring any fraction part, as <code>new BigInteger(integerPart).longValue()</code>. Plain
+   * integers of up to 18 digits are parsed without creating objects.
+   * @param s
+   * @param start
+   * @param end
+   * @param into array to put the value in
+   * @param at index to put the value at
+   * @return false if not a number
+   */
+  static boolean parseLong(String s, int start, int end, long[] into, int at)
+  {
+    int dot = s.indexOf('.', start);
+    if(dot != -1 && dot < end)
+      end = dot;
+    int i = start;
+    boolean negative = false;
+    if(i < end && (s.charAt(i) == '-' || s.charAt(i) == '+'))
+      negative = s.charAt(i++) == '-';
+    if(i == end || end - i > 18)
+      return parseBig(s, start, end, into, at);
+    long value = 0;
+    for(; i < end; i++)
+    {
+      int digit = s.charAt(i) - '0';
+      if(digit < 0 || digit > 9)
+        return parseBig(s, start, end, into, at);
+      value = value * 10 + digit;
+    }
+    into[at] = negative ? -value : value;
+    return true;
+  }
+  private static boolean parseBig(String s, int start, int end, long[] into, int at)
+  {
+    try {
+      into[at] = new BigInteger(s.substring(start, end)).longValue();
+      return true;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+  private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 
+      1e13, 1e14, 1e15};
+  /**
+   * Parses a decimal, as <code>new BigDecimal(text).doubleValue()</code>. Plain decimals of up to 15 digits are
+   * converted exactly with a single division, others are parsed as big decimals.
+   * @param s
+   * @param start
+   * @param end
+   * @param into array to put the value in
+   * @param at index to put the value at
+   * @return false if not a number
+   */
+  static boolean parseDouble(String s, int start, int end, double[] into, int at)
+  {
+    int i = start, digits = 0, scale = -1;
+    boolean negative = false;
+    if(i < end && (s.charAt(i) == '-' || s.charAt(i) == '+'))
+      negative = s.charAt(i++) == '-';
+    long mantissa = 0;
+    for(; i < end; i++)
+    {
+      char c = s.charAt(i);
+      if(c >= '0' && c <= '9')
+      {
+        mantissa = mantissa * 10 + (c - '0');
+        digits++;
+        if(scale >= 0)
+          scale++;
+      }
+      else if(c == '.' && scale < 0)
+        scale = 0;
+      else
+        break;
+    }
+    if(i < end || digits == 0 || digits > 15)
+    {
+      try {
+        into[at] = new BigDecimal(s.substring(start, end)).doubleValue();
+        return true;
+      } catch (NumberFormatException e) {
+        return false;
+      }
+    }
+    double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+    into[at] = negative && mantissa != 0 ? -value : value;
+    return true;
+  }
+}
@@ -0,0 +1,252 @@
+/* ============================================================================
+*
+* FILE: ColumnarBatch.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.db;
+
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.BitSet;
+
+import javax.sql.DataSource;
+
+import com.reactivetechnologies.csvloader.Job;
+import com.reactivetechnologies.csvloader.io.FieldTokenizer;
+/**
+ * A batch of consecutive records, held by column rather than as an array of field strings per record. Numeric 
+ * columns are parsed into primitive vectors when the batch is filled, and date/time columns into epoch millis, so the 
+ * writer binds them without parsing again. Other columns are kept as offsets into the source line, and a string is created only when binding. Blank 
+ * fields, and numbers that could not be parsed (to be bound as NULL), are marked in bitmaps per column. The field
+ * offsets are kept for all columns, for error reporting. Blank and unparseable date/time fields are marked as null.
+ * <p>A batch is queued to the writer as a single job, with the index of its first record as the job index.
+ * <p><b>NOTE:</b> This class is not thread safe. A batch is filled by one thread, and then handed off to the writer.
+ */
+public class ColumnarBatch extends Job {
+
+  private static final long serialVersionUID = 1L;
+  
+  static final byte TEXT = 0, LONG = 1, DOUBLE = 2, DATE = 3;
+  /**
+   * Column types of the target table, as needed for filling batches.
+   */
+  public static final class Layout
+  {
+    final ColumnMeta[] columns;
+    final byte[] kinds;
+    /**
+     * Date parsers of each parse worker, per column. A parser keeps the format that matched last, so it is
+     * kept across the batches of a worker.
+     */
+    private final ThreadLocal<DateParser[]> dateParsers = new ThreadLocal<DateParser[]>(){
+      @Override
+      protected DateParser[] initialValue() {
+        DateParser[] parsers = new DateParser[kinds.length];
+        for(int i = 0; i < kinds.length; i++)
+        {
+          if(kinds[i] == DATE)
+            parsers[i] = DateParser.fromConfig();
+        }
+        return parsers;
+      }
+    };
+    Layout(ColumnMeta[] columns) {
+      this.columns = columns;
+      kinds = new byte[columns.length];
+      for(int i = 0; i < columns.length; i++)
+      {
+        Class<?> type = columns[i].type;
+        kinds[i] = (type == Integer.class || type == Long.class) ? LONG : type == Double.class ? DOUBLE 
+            : (type == java.sql.Date.class || type == Time.class || type == Timestamp.class) ? DATE : TEXT;
+      }
+    }
+    public int getColumnCount() {
+      return columns.length;
+    }
+  }
+  /**
+   * The layout of the table to be loaded, from the (cached) table metadata.
+   * @param ds
+   * @return
+   * @throws SQLException
+   */
+  public static Layout layoutOf(DataSource ds) throws SQLException
+  {
+    return new Layout(DatabaseSession.getColumns(ds));
+  }
+  
+  private static final class Column
+  {
+    final byte kind;
+    final DateParser dateParser;
+    long[] longs;
+    double[] doubles;
+    int[] starts, ends;
+    final BitSet nulls = new BitSet(), blanks = new BitSet();
+    Column(byte kind, DateParser dateParser, int capacity) {
+      this.kind = kind;
+      this.dateParser = dateParser;
+      starts = new int[capacity];
+      ends = new int[capacity];
+      if(kind == LONG || kind == DATE)
+        longs = new long[capacity];
+      else if(kind == DOUBLE)
+        doubles = new double[capacity];
+    }
+    void set(int row, String line, int start, int end)
+    {
+      starts[row] = start;
+      ends[row] = end;
+      if(start == end)
+        blanks.set(row);
+      if(kind == LONG)
+      {
+        if(!ColumnBinder.parseLong(line, start, end, longs, row))
+          nulls.set(row);
+      }
+      else if(kind == DOUBLE)
+      {
+        if(!ColumnBinder.parseDouble(line, start, end, doubles, row))
+          nulls.set(row);
+      }
+      else if(kind == DATE)
+      {
+        if(start == end || !dateParser.parse(line.substring(start, end), longs, row))
+          nulls.set(row);
+      }
+    }
+  }
+  
+  private final Column[] columns;
+  private final String[] lines;
+  private final long[] offsets;
+  /**
+   * Records whose field count does not match the columns, with the field count found.
+   */
+  private final BitSet malformed = new BitSet();
+  private final int[] fieldCounts;
+  private int size;
+  /**
+   * 
+   * @param layout
+   * @param firstIndex record index of the first record
+   * @param capacity
+   */
+  public ColumnarBatch(Layout layout, int firstIndex, int capacity) {
+    columns = new Column[layout.kinds.length];
+    DateParser[] dateParsers = layout.dateParsers.get();
+    for(int i = 0; i < columns.length; i++)
+      columns[i] = new Column(layout.kinds[i], dateParsers[i], capacity);
+    lines = new String[capacity];
+    offsets = new long[capacity];
+    fieldCounts = new int[capacity];
+    setJobIndex(firstIndex);
+  }
+  /**
+   * Adds the next record.
+   * @param line the source line
+   * @param tokenizer to split the line on
+   * @param offset end offset of the line in the source file, or -1
+   * @return true if the batch is full
+   */
+  public boolean add(String line, FieldTokenizer tokenizer, long offset)
+  {
+    int row = size++;
+    lines[row] = line;
+    offsets[row] = offset;
+    setOffset(offset);
+    int count = tokenizer.tokenize(line);
+    if(count != columns.length)
+    {
+      malformed.set(row);
+      fieldCounts[row] = count;
+    }
+    else
+    {
+      for(int i = 0; i < count; i++)
+        columns[i].set(row, line, tokenizer.start(i), tokenizer.end(i));
+    }
+    return size == lines.length;
+  }
+  @Override
+  public int getRecordCount() {
+    return size;
+  }
+  public int getColumnCount() {
+    return columns.length;
+  }
+  /**
+   * The source line of a record.
+   * @param row
+   * @return
+   */
+  public String getLine(int row) {
+    return lines[row];
+  }
+  /**
+   * End offset of a record in the source file, or -1 if not known.
+   * @param row
+   * @return
+   */
+  public long getOffset(int row) {
+    return offsets[row];
+  }
+  boolean isMalformed(int row) {
+    return malformed.get(row);
+  }
+  int getFieldCount(int row) {
+    return fieldCounts[row];
+  }
+  boolean isBlank(int column, int row) {
+    return columns[column].blanks.get(row);
+  }
+  /**
+   * If the field could not be parsed to the column type.
+   */
+  boolean isNull(int column, int row) {
+    return columns[column].nulls.get(row);
+  }
+  long getLong(int column, int row) {
+    return columns[column].longs[row];
+  }
+  double getDouble(int column, int row) {
+    return columns[column].doubles[row];
+  }
+  /**
+   * A date/time field, as epoch millis.
+   */
+  long getMillis(int column, int row) {
+    return columns[column].longs[row];
+  }
+  /**
+   * The text of a field.
+   */
+  String getText(int column, int row) {
+    Column col = columns[column];
+    return lines[row].substring(col.starts[row], col.ends[row]);
+  }
+}
@@ -1,14 +1,13 @@
 package com.reactivetechnologies.csvloader.db;
 
 import java.lang.reflect.Field;
-import java.math.BigDecimal;
-import java.math.BigInteger;
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
@@ -17,10 +16,13 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
@@ -28,7 +30,9 @@ import java.util.logging.Logger;
 
 import javax.sql.DataSource;
 
+import com.reactivetechnologies.csvloader.CheckpointTracker;
 import com.reactivetechnologies.csvloader.ConfigLoader;
+import com.reactivetechnologies.csvloader.RecordNumbering;
 
 public class DatabaseSession {
 	
@@ -36,10 +40,35 @@ public class DatabaseSession {
 	//final DataSource dSource;
 	private Connection conn = null;
 	private PreparedStatement insertPstmt = null;
+	/**
+	 * Inserts a group of rows per statement, if enabled. The last records of a batch, not making up a complete group, 
+	 * are inserted with the single row statement.
+	 */
+	private PreparedStatement multiPstmt;
+	private int rowsPerInsert;
+	private Object[] groupSources;
+	private int[] groupRows, groupIndexes;
+	private int groupSize, groupsPending;
+	/**
+	 * Loads the records with the bulk load command of the database instead, if enabled and supported.
+	 */
+	private boolean bulkLoad;
+	private BulkLoader bulkLoader;
 	private Statement batchStmt;
 	Statement stmt = null;
 	ResultSet rs = null;
 	private int batchSize = 100;
+	private BatchSizeController batchSizer;
+	/**
+	 * Records executed but not committed yet, and how many of those were inserted.
+	 */
+	private int commitSize;
+	private long commitIntervalNanos, lastCommit = System.nanoTime();
+	private int uncommittedRecords, uncommittedCount;
+	/**
+	 * Whether a savepoint is taken before each batch, if supported, so that a failed batch is rolled back on its own.
+	 */
+	private boolean savepoints;
 		
 	private final AtomicLong counter;
 	/**
@@ -55,6 +84,7 @@ public class DatabaseSession {
       {
         throw new UnsupportedOperationException("Batch execution not supported in JDBC driver");
       }
+			savepoints = conn.getMetaData().supportsSavepoints();
 			this.counter = counter;
 		} catch (Exception e) {
 			throw new ExceptionInInitializerError(e);
@@ -78,7 +108,80 @@ public class DatabaseSession {
     log.fine("-- Database metadata loaded --");
     log.fine(dataTypes.toString());
 	}
+	/**
+	 * Table metadata, read once per table and shared by all sessions. Saves the dictionary queries
+	 * on every new session, which are frequent as a writer is started for each load per thread.
+	 */
+	private static final ConcurrentMap<String, TableMeta> metaCache = new ConcurrentHashMap<>();
+	
+	private static class TableMeta
+	{
+	  final Map<Integer, ColumnMeta> dataTypes;
+	  final Map<Short, String> primaryKeys;
+	  final boolean autoIncrement;
+	  final boolean hasDates;
+    TableMeta(Map<Integer, ColumnMeta> dataTypes, Map<Short, String> primaryKeys, boolean autoIncrement) {
+      this.dataTypes = Collections.unmodifiableMap(dataTypes);
+      this.primaryKeys = Collections.unmodifiableMap(primaryKeys);
+      this.autoIncrement = autoIncrement;
+      boolean dates = false;
+      for(ColumnMeta col : dataTypes.values())
+      {
+        if(col.type == Date.class || col.type == Time.class || col.type == Timestamp.class)
+          dates = true;
+      }
+      this.hasDates = dates;
+    }
+	}
+	/**
+	 * Discards the cached table metadata, so that it is read again by the next session. To be
+	 * invoked if the table definition may have changed.
+	 */
+	public static void clearMetadataCache()
+	{
+	  metaCache.clear();
+	}
+	/**
+	 * Columns of the target table in order, from the cached metadata, or read with a new connection if not cached yet.
+	 * @param ds
+	 * @return
+	 * @throws SQLException
+	 */
+	static ColumnMeta[] getColumns(DataSource ds) throws SQLException
+	{
+	  String dbTable = ConfigLoader.getConfig().getProperty(ConfigLoader.INSERT_INTO_TABLE);
+	  TableMeta meta = metaCache.get(dbTable);
+	  if(meta == null)
+	  {
+	    DatabaseSession session = new DatabaseSession(null, ds);
+	    try {
+	      session.readMetadata(dbTable);
+	    } finally {
+	      session.close();
+	    }
+	    meta = metaCache.get(dbTable);
+	  }
+	  return meta.dataTypes.values().toArray(new ColumnMeta[meta.dataTypes.size()]);
+	}
 	private void readMetadata(String dbTable) throws SQLException
+	{
+	  TableMeta meta = metaCache.get(dbTable);
+	  if(meta == null)
+	  {
+	    readMetadata0(dbTable);
+	    metaCache.putIfAbsent(dbTable, new TableMeta(dataTypes, primaryKeys, autoIncrement));
+	  }
+	  else
+	  {
+	    dataTypes = meta.dataTypes;
+	    primaryKeys = meta.primaryKeys;
+	    autoIncrement = meta.autoIncrement;
+	    if(meta.hasDates)
+	      loadDateFormats();
+	    log.fine("-- Database metadata loaded from cache --");
+	  }
+	}
+	private void readMetadata0(String dbTable) throws SQLException
 	{
 	  ResultSet result = conn.getMetaData().getTables(null, null, dbTable, null);
     try 
@@ -128,23 +231,60 @@ public class DatabaseSession {
 				String dbTable = ConfigLoader.getConfig().getProperty(ConfigLoader.INSERT_INTO_TABLE);
 				
 				readMetadata(dbTable);
+				binders = ColumnBinder.forColumns(dataTypes, dateFormats, isoDates);
 				
 				String sql1 = sql.substring(0, sql.indexOf(dbTable) + dbTable.length());
 				String sql2 = sql.substring(sql1.length());
-				sql1 += "(";
+				String columns = "";
 				for(ColumnMeta col : dataTypes.values())
 				{
-				  sql1 += col.name + ",";
+				  columns += col.name + ",";
 				}
-				if(sql1.endsWith(","))
+				if(columns.endsWith(","))
 				{
-				  sql1 = sql1.substring(0, sql1.length()-1);
+				  columns = columns.substring(0, columns.length()-1);
 				}
-				sql1 += ")";
+				sql1 += "(" + columns + ")";
 				insertSQL = sql1 + sql2;
 				insertPstmt = conn.prepareStatement(insertSQL);
 				log.fine(insertSQL);
 				
+				if(bulkLoad)
+				{
+				  if(upsert)
+				    log.warning("Bulk load is not supported with upsert. Loading with insert statements");
+				  else
+				    bulkLoader = BulkLoader.open(conn, dbTable, columns);
+				  if(bulkLoader != null && !bulkLoader.isZoneOffset())
+				  {
+				    for(ColumnBinder binder : binders)
+				    {
+				      if(binder != null)
+				        binder.setZoneOffset(false);
+				    }
+				  }
+				}
+				rowsPerInsert = upsert || bulkLoader != null ? 0 : rowsPerInsert(dataTypes.size(), batchSize);
+				if(rowsPerInsert > 1)
+				{
+				  String group = sql2.substring(sql2.indexOf('('));
+				  StringBuilder multiSQL = new StringBuilder(insertSQL);
+				  for(int i=1; i<rowsPerInsert; i++)
+				  {
+				    multiSQL.append(",").append(group);
+				  }
+				  multiPstmt = conn.prepareStatement(multiSQL.toString());
+				  groupSources = new Object[rowsPerInsert];
+				  groupRows = new int[rowsPerInsert];
+				  groupIndexes = new int[rowsPerInsert];
+				  log.info("["+Thread.currentThread().getName()+"] Inserting "+rowsPerInsert+" rows per statement");
+				  if(batchSizer != null)
+				  {
+				    batchSizer.setStep(rowsPerInsert);
+				    batchSize = batchSizer.getSize();
+				  }
+				}
+				
 				String and = "AND ";
 				if(!primaryKeys.isEmpty() && !autoIncrement)
 				{
@@ -172,6 +312,14 @@ public class DatabaseSession {
 	}
 	
   private SimpleDateFormat[] dateFormats;
+  private boolean isoDates;
+  private ColumnBinder[] binders;
+  /**
+   * Settings read once per session, rather than for every field.
+   */
+  private final boolean skipBlank = System.getProperty(ConfigLoader.SYS_PROP_SKIP_BLK_FLD) != null;
+  private final boolean skipInvalid = System.getProperty(ConfigLoader.SYS_PROP_SKIP_INV_FLD) != null;
+  private final boolean upsert = System.getProperty("upsert") != null;
 	private Map<Integer, ColumnMeta> dataTypes = new TreeMap<>();
 	private Map<Short, String> primaryKeys = new TreeMap<>();
 	
@@ -179,25 +327,11 @@ public class DatabaseSession {
 	{
 	  if(dateFormats == null)
 	  {
-	    if(System.getProperty(ConfigLoader.SYS_PROP_DATE_FMT) != null)
-	    {
-	      try 
-	      {
-          String[] formats = System.getProperty(ConfigLoader.SYS_PROP_DATE_FMT).split(",");
-          dateFormats = new SimpleDateFormat[formats.length];
-          for(int i=0; i<formats.length; i++)
-          {
-            dateFormats[i] = new SimpleDateFormat(formats[i]);
-          }
-          return;
-        } catch (Exception e) {
-          log.warning("["+Thread.currentThread().getName()+"] Ignoring invalid date.formats provided. Using default ISO 8601.");
-        }
-	    }
-	    dateFormats = new SimpleDateFormat[ConfigLoader.ISO_8601_DATE_FORMATS.length];
-	    for(int i=0; i<ConfigLoader.ISO_8601_DATE_FORMATS.length; i++)
+	    dateFormats = DateParser.configuredFormats();
+	    if(dateFormats == null)
 	    {
-	      dateFormats[i] = new SimpleDateFormat(ConfigLoader.ISO_8601_DATE_FORMATS[i]);
+	      isoDates = true;
+	      dateFormats = DateParser.isoFormats();
 	    }
 	  }
 	}
@@ -284,6 +418,38 @@ public class DatabaseSession {
     
   }
 	private AtomicInteger batchCount = new AtomicInteger(0);
+	
+	private CheckpointTracker checkpoint;
+	/**
+	 * Records in the current batch, to be marked on the checkpoint once committed. Includes the records skipped as invalid.
+	 */
+	private int[] pendingIndexes = new int[16];
+	private long[] pendingOffsets = new long[16];
+	private int pendingCount = 0;
+	/**
+	 * Pending records up to the last complete row group, when inserting multiple rows per statement. The ones after
+	 * are in the tail of the batch, inserted with the single row statement.
+	 */
+	private int groupedPending = 0;
+	/**
+	 * Pending records of the batches executed and not committed yet. The ones after are in the batch being executed.
+	 */
+	private int executedPending = 0;
+	/**
+	 * Set a tracker to mark the committed records on.
+	 * @param checkpoint
+	 */
+	public void setCheckpoint(CheckpointTracker checkpoint) {
+	  this.checkpoint = checkpoint;
+	}
+	private RecordNumbering numbering;
+	/**
+	 * Set how records are referred to in messages, if loaded from a split range.
+	 * @param numbering
+	 */
+	public void setRecordNumbering(RecordNumbering numbering) {
+	  this.numbering = numbering;
+	}
 	/**
 	 * Adds the next record to batch
 	 * @param values
@@ -291,22 +457,70 @@ public class DatabaseSession {
 	 * @throws SQLException
 	 */
   public void addBatch(String[] values, int jobIndex) throws SQLException{
+    addBatch(values, jobIndex, -1);
+  }
+  /**
+   * Adds the next record to batch, along with its end offset in the source file for checkpointing.
+   * @param values
+   * @param jobIndex
+   * @param offset
+   * @throws SQLException
+   */
+  public void addBatch(String[] values, int jobIndex, long offset) throws SQLException{
+    addPending(jobIndex, offset);
     if(values.length != dataTypes.size())
-      throw new SQLException(new IllegalArgumentException("[Rec#"+jobIndex+"] Input params size ("+values.length+") do not match DB column size ("+dataTypes.size()+")"));
+      throw new SQLException(new IllegalArgumentException("["+RecordNumbering.format(numbering, jobIndex)+"] Input params size ("+values.length+") do not match DB column size ("+dataTypes.size()+")"));
 		
     try {
       addBatchWithDataType(values, jobIndex);
     } catch (SQLException e) {
-      log.severe("At record index: "+jobIndex);
+      log.severe("At record: "+RecordNumbering.format(numbering, jobIndex));
       throw e;
     }
 		
-		if(batchCount.incrementAndGet() >= batchSize)
-		{
-		  executeBatch();
-		  batchCount.getAndSet(0);
-		}
+		countBatch();
 	}
+  /**
+   * Adds a record of a columnar batch to batch. The batch should have been filled with the layout of this table.
+   * @param batch
+   * @param row
+   * @throws SQLException
+   */
+  public void addBatch(ColumnarBatch batch, int row) throws SQLException{
+    int jobIndex = batch.getJobIndex() + row;
+    addPending(jobIndex, batch.getOffset(row));
+    if(batch.isMalformed(row))
+      throw new SQLException(new IllegalArgumentException("["+RecordNumbering.format(numbering, jobIndex)+"] Input params size ("+batch.getFieldCount(row)+") do not match DB column size ("+dataTypes.size()+")"));
+    
+    try {
+      addInsertToBatch(batch, row, jobIndex);
+    } catch (SQLException e) {
+      log.severe("At record: "+RecordNumbering.format(numbering, jobIndex));
+      throw e;
+    }
+    
+    countBatch();
+  }
+  private void addPending(int jobIndex, long offset)
+  {
+    if(checkpoint != null)
+    {
+      if(pendingCount == pendingIndexes.length)
+      {
+        pendingIndexes = Arrays.copyOf(pendingIndexes, pendingCount * 2);
+        pendingOffsets = Arrays.copyOf(pendingOffsets, pendingCount * 2);
+      }
+      pendingIndexes[pendingCount] = jobIndex;
+      pendingOffsets[pendingCount++] = offset;
+    }
+  }
+  private void countBatch() throws SQLException
+  {
+    if(batchCount.incrementAndGet() >= batchSize)
+    {
+      executeBatch();
+    }
+  }
   private java.util.Date toDate(String date)
   {
     try {
@@ -361,7 +575,7 @@ public class DatabaseSession {
         
         if(System.getProperty(ConfigLoader.SYS_PROP_SKIP_BLK_FLD) != null && (values[i] == null || values[i].isEmpty()))
         {
-          log.warning("[Rec#"+jobIndex+"] Skipping record with blank at param index "+(i+1)+". Value ["+values[i]+"]");
+          log.warning("["+RecordNumbering.format(numbering, jobIndex)+"] Skipping record with blank at param index "+(i+1)+". Value ["+values[i]+"]");
           return null;
         }
         
@@ -370,11 +584,11 @@ public class DatabaseSession {
           try {
             params.put(dataTypes.get(i+1).name, Integer.valueOf(values[i]).toString());
           } catch (NumberFormatException e) {
-            log.info("[Rec#"+jobIndex+"] ignoring invalid number "+values[i]);
+            log.info("["+RecordNumbering.format(numbering, jobIndex)+"] ignoring invalid number "+values[i]);
             if(System.getProperty(ConfigLoader.SYS_PROP_SKIP_INV_FLD) == null)
               params.put(dataTypes.get(i+1).name,"NULL");
             else{
-              log.warning("[Rec#"+jobIndex+"] Skipping record with unexpected value at param index "+(i+1)+". Value ["+values[i]+"]");
+              log.warning("["+RecordNumbering.format(numbering, jobIndex)+"] Skipping record with unexpected value at param index "+(i+1)+". Value ["+values[i]+"]");
               return null;
             }
               
@@ -385,11 +599,11 @@ public class DatabaseSession {
           try {
             params.put(dataTypes.get(i+1).name,Long.valueOf(values[i]).toString());
           } catch (NumberFormatException e) {
-            log.info("[Rec#"+jobIndex+"] ignoring invalid number "+values[i]);
+            log.info("["+RecordNumbering.format(numbering, jobIndex)+"] ignoring invalid number "+values[i]);
             if(System.getProperty(ConfigLoader.SYS_PROP_SKIP_INV_FLD) == null)
               params.put(dataTypes.get(i+1).name,"NULL");
             else{
-              log.warning("[Rec#"+jobIndex+"] Skipping record with unexpected value at param index "+(i+1)+". Value ["+values[i]+"]");
+              log.warning("["+RecordNumbering.format(numbering, jobIndex)+"] Skipping record with unexpected value at param index "+(i+1)+". Value ["+values[i]+"]");
               return null;
             }
           }
@@ -399,11 +613,11 @@ public class DatabaseSession {
           try {
             params.put(dataTypes.get(i+1).name,Double.valueOf(values[i]).toString());
           } catch (NumberFormatException e) {
-            log.info("[Rec#"+jobIndex+"] ignoring invalid number "+values[i]);
+            log.info("["+RecordNumbering.format(numbering, jobIndex)+"] ignoring invalid number "+values[i]);
             if(System.getProperty(ConfigLoader.SYS_PROP_SKIP_INV_FLD) == null)
               params.put(dataTypes.get(i+1).name,"NULL");
             else{
-              log.warning("[Rec#"+jobIndex+"] Skipping record with unexpected value at param index "+(i+1)+". Value ["+values[i]+"]");
+              log.warning("["+RecordNumbering.format(numbering, jobIndex)+"] Skipping record with unexpected value at param index "+(i+1)+". Value ["+values[i]+"]");
               return null;
             }
           }
@@ -412,11 +626,11 @@ public class DatabaseSession {
         {
           javaDate = toDate(values[i]);
           if(javaDate == null){
-            log.info("[Rec#"+jobIndex+"] ignoring unparseable date "+values[i]);
+            log.info("["+RecordNumbering.format(numbering, jobIndex)+"] ignoring unparseable date "+values[i]);
             if(System.getProperty(ConfigLoader.SYS_PROP_SKIP_INV_FLD) == null)
               params.put(dataTypes.get(i+1).name,"NULL");
             else{
-              log.warning("[Rec#"+jobIndex+"] Skipping record with unexpected value at param index "+(i+1)+". Value ["+values[i]+"]");
+              log.warning("["+RecordNumbering.format(numbering, jobIndex)+"] Skipping record with unexpected value at param index "+(i+1)+". Value ["+values[i]+"]");
               return null;
             }
           }
@@ -431,11 +645,11 @@ public class DatabaseSession {
         {
           javaDate = toDate(values[i]);
           if(javaDate == null){
-            log.info("[Rec#"+jobIndex+"] ignoring unparseable date "+values[i]);
+            log.info("["+RecordNumbering.format(numbering, jobIndex)+"] ignoring unparseable date "+values[i]);
             if(System.getProperty(ConfigLoader.SYS_PROP_SKIP_INV_FLD) == null)
               params.put(dataTypes.get(i+1).name,"NULL");
             else{
-              log.warning("[Rec#"+jobIndex+"] Skipping record with unexpected value at param index "+(i+1)+". Value ["+values[i]+"]");
+              log.warning("["+RecordNumbering.format(numbering, jobIndex)+"] Skipping record with unexpected value at param index "+(i+1)+". Value ["+values[i]+"]");
               return null;
             }
           }
@@ -449,11 +663,11 @@ public class DatabaseSession {
         {
           javaDate = toDate(values[i]);
           if(javaDate == null){
-            log.info("[Rec#"+jobIndex+"] ignoring unparseable date "+values[i]);
+            log.info("["+RecordNumbering.format(numbering, jobIndex)+"] ignoring unparseable date "+values[i]);
             if(System.getProperty(ConfigLoader.SYS_PROP_SKIP_INV_FLD) == null)
               params.put(dataTypes.get(i+1).name,"NULL");
             else{
-              log.warning("[Rec#"+jobIndex+"] Skipping record with unexpected value at param index "+(i+1)+". Value ["+values[i]+"]");
+              log.warning("["+RecordNumbering.format(numbering, jobIndex)+"] Skipping record with unexpected value at param index "+(i+1)+". Value ["+values[i]+"]");
               return null;
             }
           }
@@ -488,130 +702,254 @@ public class DatabaseSession {
    */
   private void addInsertToBatch(String[] values, int jobIndex) throws SQLException
   {
-    java.util.Date javaDate;
+    if(bulkLoader != null)
+    {
+      int mark = bulkLoader.buffer.length();
+      if(!formatRecord(bulkLoader.buffer, values, jobIndex))
+        bulkLoader.buffer.setLength(mark);
+    }
+    else if(multiPstmt != null)
+    {
+      if(bindRecord(multiPstmt, groupSize * binders.length, values, jobIndex))
+        addToGroup(values, -1, jobIndex);
+    }
+    else if(bindRecord(insertPstmt, 0, values, jobIndex))
+      insertPstmt.addBatch();
+    else
+      insertPstmt.clearParameters();
+  }
+  /**
+   * Binds the fields of a record, from a parameter offset.
+   * @param stmt
+   * @param base parameter offset of the record
+   * @param values
+   * @param jobIndex
+   * @return false if the record is to be skipped
+   * @throws SQLException
+   */
+  private boolean bindRecord(PreparedStatement stmt, int base, String[] values, int jobIndex) throws SQLException
+  {
     for(int i=0; i<values.length; i++)
     {
+      ColumnBinder binder = binders[i];
+      if(binder == null)
+        throw new SQLException("Found record with unexpected data type at param index "+(i+1)+". Value ["+values[i]+"]");
       
-      if(dataTypes.containsKey(i+1))
+      if(skipBlank && (values[i] == null || values[i].isEmpty()))
       {
-        Class<?> type = dataTypes.get(i+1).type;
-        
-        if(System.getProperty(ConfigLoader.SYS_PROP_SKIP_BLK_FLD) != null && (values[i] == null || values[i].isEmpty()))
-        {
-          log.warning("[Rec#"+jobIndex+"] Skipping record with blank at param index "+(i+1)+". Value ["+values[i]+"]");
-          insertPstmt.clearParameters();
-          return;
-        }
-        if(type == Integer.class || type == Long.class)
-        {
-          try 
-          {
-            BigInteger bigInt = new BigInteger(values[i].contains(".") ? 
-                values[i].substring(0, values[i].indexOf('.')) : values[i]);
-            insertPstmt.setObject(i+1, type == Integer.class ? bigInt.intValue() : bigInt.longValue());
-          } catch (Exception e) {
-            log.fine("[Rec#"+jobIndex+"] ignoring invalid number ("+values[i]+")");
-            if(System.getProperty(ConfigLoader.SYS_PROP_SKIP_INV_FLD) == null)
-              insertPstmt.setNull(i+1, dataTypes.get(i+1).sqlType);
-            else{
-              log.warning("[Rec#"+jobIndex+"] Skipping record with unexpected value at param index "+(i+1)+". Value ["+values[i]+"]");
-              insertPstmt.clearParameters();
-              return;
-            }
-              
-          }
-        }
-        else if(type == Double.class)
-        {
-          try {
-            insertPstmt.setObject(i+1, new BigDecimal(values[i]).doubleValue());
-          } catch (Exception e) {
-            log.fine("[Rec#"+jobIndex+"] ignoring invalid number ("+values[i]+")");
-            if(System.getProperty(ConfigLoader.SYS_PROP_SKIP_INV_FLD) == null)
-              insertPstmt.setNull(i+1, dataTypes.get(i+1).sqlType);
-            else{
-              log.warning("[Rec#"+jobIndex+"] Skipping record with unexpected value at param index "+(i+1)+". Value ["+values[i]+"]");
-              insertPstmt.clearParameters();
-              return;
-            }
-          }
-          }
-        else if(type == Time.class)
-        {
-          javaDate = toDate(values[i]);
-          if(javaDate == null){
-            log.fine("[Rec#"+jobIndex+"] ignoring unparseable date ("+values[i]+")");
-            if(System.getProperty(ConfigLoader.SYS_PROP_SKIP_INV_FLD) == null)
-              insertPstmt.setNull(i+1, dataTypes.get(i+1).sqlType);
-            else{
-              log.warning("[Rec#"+jobIndex+"] Skipping record with unexpected value at param index "+(i+1)+". Value ["+values[i]+"]");
-              insertPstmt.clearParameters();
-              return;
-            }
-          }
-          else
-          {
-            insertPstmt.setObject(i+1, new Time(javaDate.getTime()));
-          }
-          
-        }
-        else if(type == Timestamp.class)
-        {
-          javaDate = toDate(values[i]);
-          if(javaDate == null){
-            log.fine("[Rec#"+jobIndex+"] ignoring unparseable date ("+values[i]+")");
-            if(System.getProperty(ConfigLoader.SYS_PROP_SKIP_INV_FLD) == null)
-              insertPstmt.setNull(i+1, dataTypes.get(i+1).sqlType);
-            else{
-              log.warning("[Rec#"+jobIndex+"] Skipping record with unexpected value at param index "+(i+1)+". Value ["+values[i]+"]");
-              insertPstmt.clearParameters();
-              return;
-            }
-          }
-          else
-          {
-            insertPstmt.setObject(i+1, new Timestamp(javaDate.getTime()));
-          }
-        }
-        else if(type == Date.class)
-        {
-          javaDate = toDate(values[i]);
-          if(javaDate == null){
-            log.fine("[Rec#"+jobIndex+"] ignoring unparseable date ("+values[i]+")");
-            if(System.getProperty(ConfigLoader.SYS_PROP_SKIP_INV_FLD) == null)
-              insertPstmt.setNull(i+1, dataTypes.get(i+1).sqlType);
-            else{
-              log.warning("[Rec#"+jobIndex+"] Skipping record with unexpected value at param index "+(i+1)+". Value ["+values[i]+"]");
-              insertPstmt.clearParameters();
-              return;
-            }
-          }
-          else
-          {
-            insertPstmt.setObject(i+1, new Date(javaDate.getTime()));
-          }
-        }
-        else
-        {
-          //string
-          insertPstmt.setObject(i+1, (values[i].length() > dataTypes.get(i+1).size) ? 
-              values[i].substring(0, dataTypes.get(i+1).size) : values[i]);
-          
-        }
+        log.warning("["+RecordNumbering.format(numbering, jobIndex)+"] Skipping record with blank at param index "+(i+1)+". Value ["+values[i]+"]");
+        return false;
       }
-      else
-      {
+      if(!binder.bind(stmt, base+i+1, values[i]) && !bindInvalid(stmt, base, binder, i+1, values[i], jobIndex))
+        return false;
+    }
+    return true;
+  }
+  /**
+   * Binds NULL for a value that could not be converted, or skips the record if {@link ConfigLoader#SYS_PROP_SKIP_INV_FLD} is set.
+   * @return false if the record is to be skipped
+   */
+  private boolean bindInvalid(PreparedStatement stmt, int base, ColumnBinder binder, int index, String value, int jobIndex) throws SQLException
+  {
+    if(!acceptInvalid(binder, index, value, jobIndex))
+      return false;
+    stmt.setNull(base+index, binder.column.sqlType);
+    return true;
+  }
+  private boolean acceptInvalid(ColumnBinder binder, int index, String value, int jobIndex)
+  {
+    log.fine("["+RecordNumbering.format(numbering, jobIndex)+"] ignoring "+binder.invalid()+" ("+value+")");
+    if(skipInvalid)
+    {
+      log.warning("["+RecordNumbering.format(numbering, jobIndex)+"] Skipping record with unexpected value at param index "+index+". Value ["+value+"]");
+      return false;
+    }
+    return true;
+  }
+  /**
+   * Formats a record as a line of bulk load text, with the same handling of blank and invalid fields as 
+   * {@link #bindRecord(PreparedStatement, int, String[], int)}. Invalid values are loaded as NULL.
+   * @param out
+   * @param values
+   * @param jobIndex
+   * @return false if the record is to be skipped. The record may have been partly appended
+   * @throws SQLException
+   */
+  private boolean formatRecord(StringBuilder out, String[] values, int jobIndex) throws SQLException
+  {
+    for(int i=0; i<values.length; i++)
+    {
+      ColumnBinder binder = binders[i];
+      if(binder == null)
         throw new SQLException("Found record with unexpected data type at param index "+(i+1)+". Value ["+values[i]+"]");
+      
+      if(skipBlank && (values[i] == null || values[i].isEmpty()))
+      {
+        log.warning("["+RecordNumbering.format(numbering, jobIndex)+"] Skipping record with blank at param index "+(i+1)+". Value ["+values[i]+"]");
+        return false;
+      }
+      if(i > 0)
+        out.append('\t');
+      if(!binder.format(out, values[i]))
+      {
+        if(!acceptInvalid(binder, i+1, values[i], jobIndex))
+          return false;
+        out.append(ColumnBinder.NULL);
       }
-          
     }
-    insertPstmt.addBatch();
-  
+    out.append('\n');
+    return true;
+  }
+  private boolean formatRecord(StringBuilder out, ColumnarBatch batch, int row, int jobIndex)
+  {
+    for(int i=0; i<batch.getColumnCount(); i++)
+    {
+      ColumnBinder binder = binders[i];
+      if(skipBlank && batch.isBlank(i, row))
+      {
+        log.warning("["+RecordNumbering.format(numbering, jobIndex)+"] Skipping record with blank at param index "+(i+1)+". Value ["+batch.getText(i, row)+"]");
+        return false;
+      }
+      if(i > 0)
+        out.append('\t');
+      if(batch.isNull(i, row) || !binder.format(out, batch, i, row))
+      {
+        if(!acceptInvalid(binder, i+1, batch.getText(i, row), jobIndex))
+          return false;
+        out.append(ColumnBinder.NULL);
+      }
+    }
+    out.append('\n');
+    return true;
+  }
+  /**
+   * Binds a record of a columnar batch. Numbers are bound from the parsed values, with the same handling of
+   * blank and invalid fields as {@link #addInsertToBatch(String[], int)}.
+   * @param batch
+   * @param row
+   * @param jobIndex
+   * @throws SQLException
+   */
+  private void addInsertToBatch(ColumnarBatch batch, int row, int jobIndex) throws SQLException
+  {
+    if(bulkLoader != null)
+    {
+      int mark = bulkLoader.buffer.length();
+      if(!formatRecord(bulkLoader.buffer, batch, row, jobIndex))
+        bulkLoader.buffer.setLength(mark);
+    }
+    else if(multiPstmt != null)
+    {
+      if(bindRecord(multiPstmt, groupSize * binders.length, batch, row, jobIndex))
+        addToGroup(batch, row, jobIndex);
+    }
+    else if(bindRecord(insertPstmt, 0, batch, row, jobIndex))
+      insertPstmt.addBatch();
+    else
+      insertPstmt.clearParameters();
+  }
+  private boolean bindRecord(PreparedStatement stmt, int base, ColumnarBatch batch, int row, int jobIndex) throws SQLException
+  {
+    for(int i=0; i<batch.getColumnCount(); i++)
+    {
+      ColumnBinder binder = binders[i];
+      if(skipBlank && batch.isBlank(i, row))
+      {
+        log.warning("["+RecordNumbering.format(numbering, jobIndex)+"] Skipping record with blank at param index "+(i+1)+". Value ["+batch.getText(i, row)+"]");
+        return false;
+      }
+      if((batch.isNull(i, row) || !binder.bind(stmt, base+i+1, batch, i, row)) 
+          && !bindInvalid(stmt, base, binder, i+1, batch.getText(i, row), jobIndex))
+        return false;
+    }
+    return true;
+  }
+  /**
+   * Records bound to the multi row statement, and not added to its batch yet. A skipped record leaves
+   * its parameters to be overwritten by the next one, as the other records of the row group are already bound.
+   */
+  private void addToGroup(Object source, int row, int jobIndex) throws SQLException
+  {
+    groupSources[groupSize] = source;
+    groupRows[groupSize] = row;
+    groupIndexes[groupSize++] = jobIndex;
+    if(groupSize == rowsPerInsert)
+    {
+      multiPstmt.addBatch();
+      groupsPending++;
+      groupedPending = pendingCount;
+      Arrays.fill(groupSources, null);
+      groupSize = 0;
+    }
+  }
+  /**
+   * Binds the records of an incomplete row group to the single row statement.
+   * @throws SQLException
+   */
+  private void flushGroup() throws SQLException
+  {
+    for(int k=0; k<groupSize; k++)
+    {
+      boolean bound = groupSources[k] instanceof ColumnarBatch 
+          ? bindRecord(insertPstmt, 0, (ColumnarBatch) groupSources[k], groupRows[k], groupIndexes[k])
+          : bindRecord(insertPstmt, 0, (String[]) groupSources[k], groupIndexes[k]);
+      if(bound)
+        insertPstmt.addBatch();
+      else
+        insertPstmt.clearParameters();
+      groupSources[k] = null;
+    }
+    groupSize = 0;
+  }
+  /**
+   * Rows per multi row insert statement for a table, if {@link ConfigLoader#SYS_PROP_INSERT_ROWS} is set. This is
+   * the requested number of rows, or the batch size if not given, within the bind parameter limit of the target database 
+   * (and the row limit of SQL Server). A batch size is split into row groups of equal size, so that there is no 
+   * partial group left. An adaptive batch size then moves in whole row groups.
+   * @param columns
+   * @param batchSize
+   * @return rows per statement, or 0 if not inserting multiple rows per statement
+   */
+  static int rowsPerInsert(int columns, int batchSize)
+  {
+    String rows = System.getProperty(ConfigLoader.SYS_PROP_INSERT_ROWS);
+    if(rows == null || columns == 0)
+      return 0;
+    String target = ConfigLoader.getConfig().getProperty(ConfigLoader.TARGET_DATABASE);
+    if(ConfigLoader.ORACLE.equals(target))
+    {
+      log.warning("Multi row insert is not supported for "+target+". Inserting a row per statement");
+      return 0;
+    }
+    int maxParams = ConfigLoader.MYSQL.equals(target) ? MYSQL_MAX_PARAMS : ConfigLoader.PGSQL.equals(target) ? PGSQL_MAX_PARAMS : MSSQL_MAX_PARAMS;
+    int maxRows = maxParams / columns;
+    if(ConfigLoader.MSSQL.equals(target))
+      maxRows = Math.min(maxRows, MSSQL_MAX_ROWS);
+    
+    int requested;
+    try {
+      requested = Integer.parseInt(rows);
+    } catch (NumberFormatException e) {
+      requested = 0;
+    }
+    if(requested <= 0)
+    {
+      int groups = (batchSize + maxRows - 1) / maxRows;
+      requested = (batchSize + groups - 1) / groups;
+    }
+    int perInsert = Math.min(requested, maxRows);
+    return perInsert > 1 ? perInsert : 0;
   }
+  /**
+   * Bind parameter limits of the target databases. SQL Server allows 2100 parameters per request, of which 
+   * the driver reserves 2 for the prepared statement call.
+   */
+  static final int MSSQL_MAX_PARAMS = 2098, MSSQL_MAX_ROWS = 1000, PGSQL_MAX_PARAMS = 32767, MYSQL_MAX_PARAMS = 65535;
+  
   private void addBatchWithDataType(String[] values, int jobIndex) throws SQLException{
     try
     {
-      if((System.getProperty("upsert") != null))
+      if(upsert)
       {
         addDelInsertToBatch(values, jobIndex);
       }
@@ -689,10 +1027,18 @@ public class DatabaseSession {
       
     } 
   }
-  private int[] executeBatch0(Statement aStatement) throws SQLException
+  /**
+   * @param aStatement
+   * @param records
+   * @param last false if another statement of the same batch is executed next, so that the batch is committed once
+   * @return
+   * @throws SQLException
+   */
+  private int[] executeBatch0(Statement aStatement, int records, boolean last) throws SQLException
   {
     int[] count = null;
-    boolean commit = false;
+    boolean commit = false, failed = false;
+    Savepoint savepoint = setSavepoint();
     try
     {
       try 
@@ -701,6 +1047,7 @@ public class DatabaseSession {
         commit = true;          
       } catch (BatchUpdateException e) {
         count = e.getUpdateCounts();
+        failed = true;
         log.log(Level.SEVERE, "["+Thread.currentThread().getName()+"] Batch execution exception => { "+e.getMessage());    
         log.log(Level.FINE, "-- Stacktrace --", e);
         if("true".equalsIgnoreCase(ConfigLoader.getConfig().getProperty(ConfigLoader.COMMIT_ON_BATCH_FAIL, "true")))
@@ -714,9 +1061,15 @@ public class DatabaseSession {
     }
     finally
     {
-      if(commit)
+      if(failed && savepoint != null)
+      {
+        aStatement.clearBatch();
+        rollbackBatch(savepoint, records);
+        if(commit)
+          commit();
+      }
+      else if(commit)
       {
-        conn.commit();
         List<Integer> errs = new ArrayList<>();
         aStatement.clearBatch();
         if (count != null) {
@@ -733,12 +1086,12 @@ public class DatabaseSession {
             else 
             {
               
-              if(System.getProperty("upsert") != null){
+              if(upsert){
                 if(j % 2 == 0)
-                  counter.incrementAndGet();
+                  uncommittedCount++;
               }
               else{
-                counter.incrementAndGet();
+                uncommittedCount += aStatement == multiPstmt ? i : 1;
               }
             }
 
@@ -750,16 +1103,151 @@ public class DatabaseSession {
             log.severe("}");
           }
         }
+        uncommittedRecords += records;
+        executedPending = pendingCount;
+        if(failed || (last && isCommitDue()))
+          commit();
       }
       else
       {
-        conn.rollback();
         aStatement.clearBatch();
+        rollback();
       }
       
     }
     return count;
   }
+  /**
+   * Rolls back the batches executed and not committed yet. The records are dropped, so they are marked on the
+   * checkpoint as given up, else the checkpoint would stay behind them for the rest of the load.
+   * @throws SQLException
+   */
+  private void rollback() throws SQLException
+  {
+    conn.rollback();
+    if(uncommittedRecords > 0)
+      log.severe("["+Thread.currentThread().getName()+"] Rolled back "+uncommittedRecords+" record(s) of earlier batches, not committed yet");
+    if(checkpoint != null && pendingCount > 0)
+    {
+      checkpoint.committed(pendingIndexes, pendingOffsets, pendingCount);
+      log.warning("["+Thread.currentThread().getName()+"] Checkpoint moved past "+pendingCount+" rolled back record(s), from "
+          +RecordNumbering.format(numbering, pendingIndexes[0])+". These will not be loaded on resume");
+    }
+    pendingCount = 0;
+    groupedPending = 0;
+    executedPending = 0;
+    uncommittedCount = 0;
+    uncommittedRecords = 0;
+  }
+  /**
+   * A savepoint to roll back a failed batch to, if commits are not done on every batch, or earlier statements 
+   * of the batch are not committed yet. A failed statement may abort the whole transaction (as in PostgreSQL), 
+   * so that without a savepoint, the batches executed since the last commit would be lost along with it.
+   * @return null if not supported, or not needed
+   * @throws SQLException
+   */
+  private Savepoint setSavepoint() throws SQLException
+  {
+    if(!savepoints || (uncommittedRecords == 0 && commitSize <= 0 && commitIntervalNanos <= 0))
+      return null;
+    return conn.setSavepoint();
+  }
+  /**
+   * Rolls back the failed batch to the savepoint taken before it, keeping the earlier batches not committed yet.
+   * The records of the batch are marked on the checkpoint as given up.
+   * @param savepoint
+   * @param records
+   * @throws SQLException
+   */
+  private void rollbackBatch(Savepoint savepoint, int records) throws SQLException
+  {
+    conn.rollback(savepoint);
+    log.severe("["+Thread.currentThread().getName()+"] Rolled back the failed batch of "+records+" record(s). "
+        +uncommittedRecords+" record(s) of earlier batches are kept, to be committed");
+    int batchPending = pendingCount - executedPending;
+    if(checkpoint != null && batchPending > 0)
+    {
+      checkpoint.committed(Arrays.copyOfRange(pendingIndexes, executedPending, pendingCount), 
+          Arrays.copyOfRange(pendingOffsets, executedPending, pendingCount), batchPending);
+      log.warning("["+Thread.currentThread().getName()+"] Checkpoint moved past "+batchPending+" rolled back record(s), from "
+          +RecordNumbering.format(numbering, pendingIndexes[executedPending])+". These will not be loaded on resume");
+    }
+    pendingCount = executedPending;
+  }
+  /**
+   * Loads the buffered records with the bulk load command. The command loads all records, or none if any 
+   * fails, in which case the batch is rolled back and the load continues with the next batch.
+   * @param records
+   * @return records loaded
+   * @throws SQLException
+   */
+  private int[] executeBulkLoad(int records) throws SQLException
+  {
+    long loaded;
+    Savepoint savepoint = setSavepoint();
+    try {
+      loaded = bulkLoader.execute();
+    } catch (SQLException e) {
+      log.log(Level.SEVERE, "["+Thread.currentThread().getName()+"] Bulk load exception, "+records+" record(s) not loaded => { "+e.getMessage());
+      log.log(Level.FINE, "-- Stacktrace --", e);
+      if(savepoint != null)
+        rollbackBatch(savepoint, records);
+      else
+        rollback();
+      return new int[]{Statement.EXECUTE_FAILED};
+    }
+    uncommittedCount += loaded;
+    uncommittedRecords += records;
+    executedPending = pendingCount;
+    if(isCommitDue())
+      commit();
+    return new int[]{(int) loaded};
+  }
+  private boolean isCommitDue()
+  {
+    if(commitSize <= 0 && commitIntervalNanos <= 0)
+      return true;
+    return (commitSize > 0 && uncommittedRecords >= commitSize) 
+        || (commitIntervalNanos > 0 && System.nanoTime() - lastCommit >= commitIntervalNanos);
+  }
+  /**
+   * Commits the batches executed so far. To be invoked after the last batch is executed, if commits are
+   * not done on every batch.
+   * @throws SQLException
+   */
+  public void commit() throws SQLException
+  {
+    conn.commit();
+    if(checkpoint != null)
+      checkpoint.committed(pendingIndexes, pendingOffsets, pendingCount);
+    counter.addAndGet(uncommittedCount);
+    pendingCount = 0;
+    groupedPending = 0;
+    executedPending = 0;
+    uncommittedCount = 0;
+    uncommittedRecords = 0;
+    lastCommit = System.nanoTime();
+  }
+  /**
+   * Load with the bulk load command of the target database, rather than with insert statements, where supported. 
+   * To be set before the statement is prepared.
+   * @param bulkLoad
+   */
+  void setBulkLoad(boolean bulkLoad) {
+    this.bulkLoad = bulkLoad;
+  }
+  /**
+   * Sets how often the executed batches are committed, by number of records and/or by time, whichever comes
+   * first. If neither is set, every batch is committed when executed. A failed batch is then rolled back on its own, to
+   * a savepoint taken before it where supported, so that the earlier batches not committed yet are kept.
+   * @param commitSize records per commit, or 0
+   * @param commitIntervalMillis time between commits, or 0
+   */
+  public void setCommitInterval(int commitSize, long commitIntervalMillis)
+  {
+    this.commitSize = commitSize;
+    this.commitIntervalNanos = commitIntervalMillis * 1000000;
+  }
 	
   /**
 	 * 
@@ -767,10 +1255,47 @@ public class DatabaseSession {
 	 * @throws SQLException
 	 */
 	public int[] executeBatch() throws SQLException{
-	  if(System.getProperty("upsert") != null)
-	    return executeBatch0(batchStmt);
+	  int records = batchCount.getAndSet(0);
+	  long start = System.nanoTime();
+	  int[] count;
+	  if(upsert)
+	    count = executeBatch0(batchStmt, records, true);
+	  else if(bulkLoader != null)
+	    count = executeBulkLoad(records);
+	  else if(multiPstmt == null)
+	    count = executeBatch0(insertPstmt, records, true);
 	  else
-	    return executeBatch0(insertPstmt);
+	  {
+	    int tail = groupSize;
+	    flushGroup();
+	    count = new int[0];
+	    if(groupsPending > 0)
+	    {
+	      groupsPending = 0;
+	      //the tail records are held back from the checkpoint, so that a commit or rollback of the row groups
+	      //does not mark them before their own statement is executed
+	      int[] tailIndexes = Arrays.copyOfRange(pendingIndexes, groupedPending, pendingCount);
+	      long[] tailOffsets = Arrays.copyOfRange(pendingOffsets, groupedPending, pendingCount);
+	      pendingCount = groupedPending;
+	      count = executeBatch0(multiPstmt, records - tail, tail == 0);
+	      for(int k=0; k<tailIndexes.length; k++)
+	        addPending(tailIndexes[k], tailOffsets[k]);
+	    }
+	    groupedPending = pendingCount;
+	    if(tail > 0)
+	    {
+	      int[] tailCount = executeBatch0(insertPstmt, tail, true);
+	      if(tailCount != null)
+	      {
+	        int[] all = Arrays.copyOf(count != null ? count : new int[0], (count != null ? count.length : 0) + tailCount.length);
+	        System.arraycopy(tailCount, 0, all, all.length - tailCount.length, tailCount.length);
+	        count = all;
+	      }
+	    }
+	  }
+	  if(batchSizer != null)
+	    batchSize = batchSizer.update(records, System.nanoTime() - start);
+	  return count;
 	}
 
 	public int executeUpdate(){
@@ -848,6 +1373,14 @@ public class DatabaseSession {
 				insertPstmt.close();
 				insertPstmt = null;
 			}
+			if(multiPstmt != null){
+			  multiPstmt.close();
+			  multiPstmt = null;
+			}
+			if(bulkLoader != null){
+			  bulkLoader.close();
+			  bulkLoader = null;
+			}
 			if(stmt != null){
 				stmt.close();
 				stmt = null;
@@ -870,8 +1403,29 @@ public class DatabaseSession {
     return batchSize;
   }
 
+  /**
+   * Sets the batch size. If {@link ConfigLoader#SYS_PROP_BATCH_TARGET} is set, this is the initial size, and the
+   * size is adapted to the time taken for each batch, within {@link ConfigLoader#SYS_PROP_BATCH_MIN} and 
+   * {@link ConfigLoader#SYS_PROP_BATCH_MAX}. If these settings are invalid, the batch size is kept fixed.
+   * @param batchSize
+   */
   public void setBatchSize(int batchSize) {
     this.batchSize = batchSize;
+    Long target = Long.getLong(ConfigLoader.SYS_PROP_BATCH_TARGET);
+    if(target != null)
+    {
+      try {
+        batchSizer = new BatchSizeController(target, Integer.getInteger(ConfigLoader.SYS_PROP_BATCH_MIN, BatchSizeController.DEFAULT_MIN_SIZE), 
+            Integer.getInteger(ConfigLoader.SYS_PROP_BATCH_MAX, BatchSizeController.DEFAULT_MAX_SIZE), batchSize);
+        if(rowsPerInsert > 1)
+          batchSizer.setStep(rowsPerInsert);
+        this.batchSize = batchSizer.getSize();
+      } catch (IllegalArgumentException e) {
+        log.warning("["+Thread.currentThread().getName()+"] Ignoring invalid adaptive batch size settings. "+e.getMessage()
+            +". Using fixed batch size "+batchSize);
+        batchSizer = null;
+      }
+    }
   }
 
 }
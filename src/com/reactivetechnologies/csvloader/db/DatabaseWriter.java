@@ -3,8 +3,10 @@ package com.reactivetechnologies.csvloader.db;
 import java.io.Closeable;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -13,9 +15,11 @@ import java.util.logging.Logger;
 
 import javax.sql.DataSource;
 
+import com.reactivetechnologies.csvloader.CheckpointTracker;
 import com.reactivetechnologies.csvloader.ConfigLoader;
 import com.reactivetechnologies.csvloader.Job;
 import com.reactivetechnologies.csvloader.JobExecutor;
+import com.reactivetechnologies.csvloader.RecordNumbering;
 
 public class DatabaseWriter implements JobExecutor, Closeable{
 	private static final Logger log = Logger.getLogger(DatabaseWriter.class.getSimpleName());
@@ -32,12 +36,22 @@ public class DatabaseWriter implements JobExecutor, Closeable{
 	public DatabaseWriter(int jobCapacity, AtomicLong counter, DataSource ds){
 		this.jobCapacity = jobCapacity;
 		this.counter = counter;
-    jobQ = ConfigLoader.isImmediateProcessing()
-        ? new ArrayBlockingQueue<Job>(this.jobCapacity)
-        : new ArrayBlockingQueue<Job>(ConfigLoader.getBatchSize());
+    queueCapacity = ConfigLoader.isImmediateProcessing() ? this.jobCapacity : ConfigLoader.getBatchSize();
+    jobQ = new ArrayBlockingQueue<Job>(queueCapacity);
+    queuedRecords = new Semaphore(queueCapacity);
 		this.ds = ds;
 	}
 	private BlockingQueue<Job> jobQ;
+	/**
+	 * Bounds the records queued, rather than the jobs, as a job may carry a batch of records. A job holds 
+	 * permits for its records, up to the queue capacity.
+	 */
+	private final Semaphore queuedRecords;
+	private final int queueCapacity;
+	private int permits(Job job)
+	{
+	  return Math.min(job.getRecordCount(), queueCapacity);
+	}
 	public void execute(){
 		Thread t = new Thread(this);
 		t.start();
@@ -49,10 +63,10 @@ public class DatabaseWriter implements JobExecutor, Closeable{
 			if(dbTable != null){
 				sqlTemplate = new StringBuilder("INSERT INTO "+dbTable+" VALUES (");
 			}
-			String[] values = (String[]) job.getJobDefn();
-      for(int i=0; i<values.length; i++){
+			int columns = job instanceof ColumnarBatch ? ((ColumnarBatch) job).getColumnCount() : ((String[]) job.getJobDefn()).length;
+      for(int i=0; i<columns; i++){
         sqlTemplate.append("?");
-        if(i < values.length-1){
+        if(i < columns-1){
           sqlTemplate.append(",");
         }
       }
@@ -60,14 +74,33 @@ public class DatabaseWriter implements JobExecutor, Closeable{
 		}
 	}
 	
+	/**
+	 * A new session, for the writer to load with. Sessions report the records loaded into the writer's counter.
+	 * @return
+	 */
+	protected DatabaseSession newSession()
+	{
+	  return new DatabaseSession(counter, ds);
+	}
 	private DatabaseSession prepareSession(Job job) throws SQLException
 	{
-	  DatabaseSession session = new DatabaseSession(counter, ds);  
+	  DatabaseSession session = idleSessions != null ? idleSessions.poll() : null;
+	  if(session != null)
+	  {
+	    //already prepared, by an earlier writer
+	    session.setCheckpoint(checkpoint);
+	    session.setRecordNumbering(numbering);
+	    return session;
+	  }
+	  session = newSession();  
     try {
       session.setBatchSize(ConfigLoader.getBatchSize());
+      session.setCommitInterval(ConfigLoader.getCommitSize(), ConfigLoader.getCommitInterval());
     } catch (NumberFormatException e) {
       
     }
+    session.setCheckpoint(checkpoint);
+    session.setRecordNumbering(numbering);
     prepareSQLTemplate(job);
     session.prepareStatement(sqlTemplate.toString());
     return session;
@@ -78,7 +111,7 @@ public class DatabaseWriter implements JobExecutor, Closeable{
 	 */
   void _run()
 	{
-    DatabaseSession session = new DatabaseSession(counter, ds); 
+    DatabaseSession session = newSession(); 
     try {
       session.setBatchSize(ConfigLoader.getBatchSize());
     } catch (NumberFormatException e) {
@@ -116,6 +149,32 @@ public class DatabaseWriter implements JobExecutor, Closeable{
   
 	}
   private DatabaseSession session = null;
+  private CheckpointTracker checkpoint;
+  private RecordNumbering numbering;
+  private BlockingQueue<DatabaseSession> idleSessions;
+  /**
+   * Set a pool to take a prepared session from, and to return the session to once the writer is done, instead of 
+   * closing it. Keeps the connections and statements open across writers, and across files when loading several. 
+   * Sessions left in the pool are to be closed by the owner. To be set before the first job is added.
+   * @param idleSessions
+   */
+  public void setSessionPool(BlockingQueue<DatabaseSession> idleSessions) {
+    this.idleSessions = idleSessions;
+  }
+  /**
+   * Set a tracker to mark the committed records on. To be set before the first job is added.
+   * @param checkpoint
+   */
+  public void setCheckpoint(CheckpointTracker checkpoint) {
+    this.checkpoint = checkpoint;
+  }
+  /**
+   * Set the numbering to refer to records by in messages, when loading a split range. To be set before the first job is added.
+   * @param numbering
+   */
+  public void setRecordNumbering(RecordNumbering numbering) {
+    this.numbering = numbering;
+  }
   /**
    * 
    */
@@ -131,6 +190,8 @@ public class DatabaseWriter implements JobExecutor, Closeable{
         try 
         {
           job = jobQ.poll(10, TimeUnit.MILLISECONDS);
+          if(job != null)
+            queuedRecords.release(permits(job));
           if(job instanceof PoisonPill)
             break;
           if(job != null)
@@ -140,13 +201,19 @@ public class DatabaseWriter implements JobExecutor, Closeable{
               session = prepareSession(job);
               log.info("Prepared session..");
             }
+            if(job instanceof ColumnarBatch)
+            {
+              addBatch((ColumnarBatch) job);
+              continue;
+            }
             String[] values = (String[]) job.getJobDefn();
             try 
             {
-              session.addBatch(values, job.getJobIndex());
+              session.addBatch(values, job.getJobIndex(), job.getOffset());
               //log.info("Record# "+job.jobIndex+"> "+job.payload);
             } catch (Exception e) {
-              log.warning("Batch exception at [Rec#"+job.getJobIndex()+"] Skipping load record ["+job.getPayload()+"] "+e.getMessage());
+              log.warning("Batch exception at ["+RecordNumbering.format(numbering, job.getJobIndex())+"] Skipping load record ["
+                  +(job.getPayload() != null ? job.getPayload() : Arrays.toString(values))+"] "+e.getMessage());
             }
           }
         } catch (InterruptedException e1) {
@@ -164,6 +231,22 @@ public class DatabaseWriter implements JobExecutor, Closeable{
 	}
 	
 	
+	/**
+	 * Adds the records of a columnar batch, skipping the ones that fail.
+	 * @param batch
+	 */
+	private void addBatch(ColumnarBatch batch)
+	{
+	  for(int row = 0; row < batch.getRecordCount(); row++)
+	  {
+	    try 
+	    {
+	      session.addBatch(batch, row);
+	    } catch (Exception e) {
+	      log.warning("Batch exception at ["+RecordNumbering.format(numbering, batch.getJobIndex() + row)+"] Skipping load record ["+batch.getLine(row)+"] "+e.getMessage());
+	    }
+	  }
+	}
 	@Override
 	public void run() {
 	  run0();
@@ -194,6 +277,10 @@ public class DatabaseWriter implements JobExecutor, Closeable{
 	{
 	  if (!stopped) {
       try {
+        int permits = permits(j);
+        while (!queuedRecords.tryAcquire(permits, 10, TimeUnit.MILLISECONDS))
+          if (stopped)
+            return;
         while (!jobQ.offer(j, 10, TimeUnit.MILLISECONDS))
           ;
       } catch (InterruptedException e) {
@@ -202,10 +289,11 @@ public class DatabaseWriter implements JobExecutor, Closeable{
     }
 	}
 	/**
-	 * 
+	 * Adds a job, if the records offered so far are within the job capacity. A batch of records is 
+	 * accepted as a whole, so the capacity may be exceeded by the last batch.
 	 */
 	public boolean addJob(Job job) {
-	  if(offered.getAndIncrement() < jobCapacity)
+	  if(offered.getAndAdd(job.getRecordCount()) < jobCapacity)
 	  {
 	    offer(job);
 	    return true;
@@ -220,7 +308,12 @@ public class DatabaseWriter implements JobExecutor, Closeable{
   @Override
   public boolean addJobImmediate(Job job) {
     if (!stopped) {
-      return jobQ.offer(job);
+      int permits = permits(job);
+      if (queuedRecords.tryAcquire(permits)) {
+        if (jobQ.offer(job))
+          return true;
+        queuedRecords.release(permits);
+      }
     }
     return false;
   }
@@ -230,12 +323,18 @@ public class DatabaseWriter implements JobExecutor, Closeable{
   public void close()  {
     if(session != null)
     {
+      boolean reusable = idleSessions != null;
       try {
         session.executeBatch();
+        session.commit();
       } catch (SQLException e) {
         log.log(Level.SEVERE, "Execute batch caught exception on closing", e);
+        reusable = false;
       }
-      session.close();
+      session.setCheckpoint(null);
+      session.setRecordNumbering(null);
+      if(!reusable || !idleSessions.offer(session))
+        session.close();
       session = null;
     }
     if (jobQ != null) {
@@ -0,0 +1,252 @@
+/* ============================================================================
+*
+* FILE: DateParser.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.db;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+import java.util.logging.Logger;
+
+import com.reactivetechnologies.csvloader.ConfigLoader;
+/**
+ * Parses the date/time values of a column, as epoch millis, or by the configured date formats. ISO 8601 values 
+ * (<code>yyyy-MM-dd</code>, optionally followed by <code>HH:mm</code> or <code>HH:mm:ss</code> and a zone offset) are
+ * parsed by hand, when using the default formats. Otherwise the format that matched the last value is tried first, 
+ * as values of a column are mostly in the same format. No exception is raised for values that do not match.
+ * <p>A value is matched by the first format that parses it completely. If none does, the format that parses the 
+ * longest part of it is taken, as <code>SimpleDateFormat</code> ignores trailing text.
+ * <p><b>NOTE:</b> This class is not thread safe.
+ */
+class DateParser
+{
+  private static final Logger log = Logger.getLogger(DateParser.class.getSimpleName());
+  private final SimpleDateFormat[] formats;
+  private final boolean iso;
+  private final ParsePosition pos = new ParsePosition(0);
+  private final Calendar local = new GregorianCalendar(), utc = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+  private int learned = -1;
+  /**
+   * 
+   * @param formats
+   * @param iso if the formats are the default ISO 8601 formats
+   */
+  DateParser(SimpleDateFormat[] formats, boolean iso) {
+    this.formats = formats;
+    this.iso = iso;
+  }
+  /**
+   * A parser for the configured date formats, with formats of its own.
+   * @return
+   * @see #configuredFormats()
+   */
+  static DateParser fromConfig()
+  {
+    SimpleDateFormat[] formats = configuredFormats();
+    return formats != null ? new DateParser(formats, false) : new DateParser(isoFormats(), true);
+  }
+  /**
+   * New instances of the formats given by {@link ConfigLoader#SYS_PROP_DATE_FMT}.
+   * @return the formats, or null if not given or invalid, in which case the ISO 8601 formats are to be used
+   */
+  static SimpleDateFormat[] configuredFormats()
+  {
+    if(System.getProperty(ConfigLoader.SYS_PROP_DATE_FMT) != null)
+    {
+      try 
+      {
+        String[] patterns = System.getProperty(ConfigLoader.SYS_PROP_DATE_FMT).split(",");
+        SimpleDateFormat[] formats = new SimpleDateFormat[patterns.length];
+        for(int i=0; i<patterns.length; i++)
+        {
+          formats[i] = new SimpleDateFormat(patterns[i]);
+        }
+        return formats;
+      } catch (Exception e) {
+        log.warning("["+Thread.currentThread().getName()+"] Ignoring invalid date.formats provided. Using default ISO 8601.");
+      }
+    }
+    return null;
+  }
+  /**
+   * New instances of the default ISO 8601 formats.
+   * @return
+   */
+  static SimpleDateFormat[] isoFormats()
+  {
+    SimpleDateFormat[] formats = new SimpleDateFormat[ConfigLoader.ISO_8601_DATE_FORMATS.length];
+    for(int i=0; i<ConfigLoader.ISO_8601_DATE_FORMATS.length; i++)
+    {
+      formats[i] = new SimpleDateFormat(ConfigLoader.ISO_8601_DATE_FORMATS[i]);
+    }
+    return formats;
+  }
+  /**
+   * Parses a date/time value.
+   * @param value
+   * @param into array to put the epoch millis in
+   * @param at index to put the value at
+   * @return false if the value could not be parsed
+   */
+  boolean parse(String value, long[] into, int at)
+  {
+    if(isMillis(value))
+    {
+      try {
+        into[at] = Long.parseLong(value);
+        return true;
+      } catch (NumberFormatException e) {
+        return false;
+      }
+    }
+    if(iso && parseIso(value, into, at))
+      return true;
+    if(learned != -1 && parseFully(formats[learned], value, into, at))
+      return true;
+    
+    int longest = 0;
+    java.util.Date partial = null;
+    for(int i = 0; i < formats.length; i++)
+    {
+      pos.setIndex(0);
+      pos.setErrorIndex(-1);
+      java.util.Date date = formats[i].parse(value, pos);
+      if(date == null)
+        continue;
+      if(pos.getIndex() == value.length())
+      {
+        learned = i;
+        into[at] = date.getTime();
+        return true;
+      }
+      if(pos.getIndex() > longest)
+      {
+        longest = pos.getIndex();
+        partial = date;
+      }
+    }
+    if(partial != null)
+    {
+      into[at] = partial.getTime();
+      return true;
+    }
+    return false;
+  }
+  private static boolean isMillis(String value)
+  {
+    int i = 0, n = value.length();
+    if(n > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+'))
+      i++;
+    if(i == n)
+      return false;
+    for(; i < n; i++)
+    {
+      char c = value.charAt(i);
+      if(c < '0' || c > '9')
+        return false;
+    }
+    return true;
+  }
+  private boolean parseFully(SimpleDateFormat format, String value, long[] into, int at)
+  {
+    pos.setIndex(0);
+    pos.setErrorIndex(-1);
+    java.util.Date date = format.parse(value, pos);
+    if(date == null || pos.getIndex() != value.length())
+      return false;
+    into[at] = date.getTime();
+    return true;
+  }
+  /**
+   * Two digits at an offset, or -1.
+   */
+  private static int digits2(String s, int i)
+  {
+    char c1 = s.charAt(i), c2 = s.charAt(i + 1);
+    if(c1 < '0' || c1 > '9' || c2 < '0' || c2 > '9')
+      return -1;
+    return (c1 - '0') * 10 + (c2 - '0');
+  }
+  /**
+   * Parses <code>yyyy-MM-dd[( |T)HH:mm[:ss]][Z|+hh:mm|+hhmm]</code>, with fields in range. Times without a zone are 
+   * taken as local time, like the date formats do.
+   */
+  private boolean parseIso(String s, long[] into, int at)
+  {
+    int n = s.length();
+    if(n < 10 || s.charAt(4) != '-' || s.charAt(7) != '-')
+      return false;
+    int y1 = digits2(s, 0), y2 = digits2(s, 2), month = digits2(s, 5), day = digits2(s, 8);
+    if(y1 < 0 || y2 < 0 || month < 1 || month > 12 || day < 1)
+      return false;
+    int year = y1 * 100 + y2, hour = 0, minute = 0, second = 0;
+    int i = 10;
+    if(n >= 16 && (s.charAt(10) == ' ' || s.charAt(10) == 'T') && s.charAt(13) == ':')
+    {
+      hour = digits2(s, 11);
+      minute = digits2(s, 14);
+      if(hour < 0 || hour > 23 || minute < 0 || minute > 59)
+        return false;
+      i = 16;
+      if(n >= 19 && s.charAt(16) == ':')
+      {
+        second = digits2(s, 17);
+        if(second < 0 || second > 59)
+          return false;
+        i = 19;
+      }
+    }
+    int offset = 0;
+    boolean zoned = i < n;
+    if(zoned)
+    {
+      char c = s.charAt(i);
+      if(c == 'Z' && i + 1 == n)
+        offset = 0;
+      else if((c == '+' || c == '-') && (i + 6 == n && s.charAt(i + 3) == ':' || i + 5 == n))
+      {
+        int oh = digits2(s, i + 1), om = digits2(s, i + 6 == n ? i + 4 : i + 3);
+        if(oh < 0 || oh > 23 || om < 0 || om > 59)
+          return false;
+        offset = (oh * 60 + om) * 60000 * (c == '-' ? -1 : 1);
+      }
+      else
+        return false;
+    }
+    Calendar cal = zoned ? utc : local;
+    cal.clear();
+    cal.set(year, month - 1, 1);
+    if(day > cal.getActualMaximum(Calendar.DAY_OF_MONTH))
+      return false;
+    cal.set(year, month - 1, day, hour, minute, second);
+    into[at] = cal.getTimeInMillis() - offset;
+    return true;
+  }
+}
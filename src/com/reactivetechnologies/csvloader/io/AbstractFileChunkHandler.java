@@ -46,6 +46,10 @@ import java.util.logging.Logger;
 abstract class AbstractFileChunkHandler implements Closeable{
 
   private static final Logger log = Logger.getLogger(AbstractFileChunkHandler.class.getSimpleName());
+  /**
+   * Chunks retained for reuse by a reading handler.
+   */
+  static final int CHUNK_POOL_SIZE = 4;
   //private static final Logger log = LoggerFactory.getLogger(AbstractFileChunkHandler.class);
   /**
    * Checks file attributes
@@ -177,8 +181,9 @@ abstract class AbstractFileChunkHandler implements Closeable{
     
   }
   /**
-   * 
-   * @return
+   * Reads the next chunk. The returned chunk may be pooled, and should be {@link FileChunk#release() released}
+   * by the consumer once done with.
+   * @return the next chunk, or null on end of file
    * @throws IOException
    */
   public abstract FileChunk readNext() throws IOException;
@@ -28,21 +28,22 @@ SOFTWARE.
 */
 package com.reactivetechnologies.csvloader.io;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.io.Reader;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.concurrent.SynchronousQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+
+import com.reactivetechnologies.csvloader.ConfigLoader;
 /**
  * A byte stream based reader. The fetching of bytes is performed in a separate thread than the reader thread.
- * This class is not thread safe for multiple readers. The communication between fetch thread and reader thread is via a {@linkplain SynchronousQueue}. 
- * This class will never buffer more characters than what present in a single line of record, and thus should be 
- * memory efficient than a standard {@linkplain BufferedReader}. <p><b>NOTE:</b> Though this class extends {@linkplain Reader}, it does not implement
+ * This class is not thread safe for multiple readers. The communication between fetch thread and reader thread is via a
+ * bounded ring buffer of line batches, so the threads synchronize once per batch rather than once per line. The buffered 
+ * lines are thus bounded by the ring capacity times the batch size, which can be tuned via system properties.
+ * <p><b>NOTE:</b> Though this class extends {@linkplain Reader}, it does not implement
  * the {@link #read(char[], int, int) read} method and attempt to invoke the method would fail. Use {@link #readLine()} to read lines of text.
  */
 public class AsciiFileReader extends Reader implements Runnable{
@@ -54,7 +55,12 @@ public class AsciiFileReader extends Reader implements Runnable{
   final static byte CARRIAGE_RETURN = 0xD;
   final static byte LINE_FEED = 0xA;
   private byte[] lineBytesAccumulated;
+  /**
+   * Whether the chunks the accumulated bytes were split from are all ASCII.
+   */
+  private boolean accumulatedAscii;
   private AbstractFileChunkHandler fileReader;
+  private ReadOptions options = new ReadOptions();
   private Thread fetchThread;
   /**
    * New reader instance.
@@ -63,8 +69,75 @@ public class AsciiFileReader extends Reader implements Runnable{
    * @throws IOException
    */
   public AsciiFileReader(File file, boolean memMappedIO) throws IOException {
+    this(file, memMappedIO, ReadOptions.fromConfig(file));
+  }
+  /**
+   * New reader instance with the given read options. A compressed file is decompressed while streaming.
+   * @param file the file to read
+   * @param memMappedIO whether to use mapped byte buffer. If not, the file is read via an asynchronous
+   * channel with read ahead if {@link ConfigLoader#SYS_PROP_ASYNC_IO} is set, else via a blocking channel. A followed
+   * file is always read via mapped byte buffer
+   * @param options chunk size, mapped region size, buffer type and read ahead
+   * @throws IOException
+   */
+  public AsciiFileReader(File file, boolean memMappedIO, ReadOptions options) throws IOException {
+    super();
+    this.fileReader = openHandler(file, memMappedIO, options);
+    this.options = options;
+    doRun();
+  }
+  /**
+   * Opens a chunk handler for reading the whole file, as per the options.
+   * @param file
+   * @param memMappedIO
+   * @param options
+   * @return
+   * @throws IOException
+   */
+  static AbstractFileChunkHandler openHandler(File file, boolean memMappedIO, ReadOptions options) throws IOException
+  {
+    CompressionCodec codec = CompressionCodec.detect(file);
+    if(codec != null)
+      return CompressedStreamChunkHandler.open(file, codec, options);
+    else if(memMappedIO || options.isFollow())
+      return new MemoryMappedChunkHandler(file, options, 0, file.length());
+    else if(System.getProperty(ConfigLoader.SYS_PROP_ASYNC_IO) != null)
+      return new AsyncChannelChunkHandler(file, options);
+    else
+      return new ByteChannelChunkHandler(file, options);
+  }
+  /**
+   * New reader instance over a byte range of the file, using memory mapped IO. The range
+   * boundaries should be aligned on line terminators.
+   * @param file the file to read
+   * @param range the byte range to read
+   * @throws IOException
+   * @see FileRange#split(File, int)
+   */
+  public AsciiFileReader(File file, FileRange range) throws IOException {
     super();
-    this.fileReader = memMappedIO ? new MemoryMappedChunkHandler(file) : new ByteChannelChunkHandler(file, 8192);
+    ReadOptions options = ReadOptions.fromConfig(file);
+    //a range has a fixed end
+    options.setFollowIdle(0);
+    this.fileReader = new MemoryMappedChunkHandler(file, options, range.getStart(), range.getEnd());
+    this.options = options;
+    streamOffset = range.getStart();
+    doRun();
+  }
+  /**
+   * New reader instance from the given offset till the end of file, using memory mapped IO. The file is followed
+   * for appends, if so configured. The offset should be at the start of a line.
+   * @param file the file to read
+   * @param offset the offset to start from
+   * @throws IOException
+   * @see #getLineEnd()
+   */
+  public AsciiFileReader(File file, long offset) throws IOException {
+    super();
+    ReadOptions options = ReadOptions.fromConfig(file);
+    this.fileReader = new MemoryMappedChunkHandler(file, options, offset, file.length());
+    this.options = options;
+    streamOffset = offset;
     doRun();
   }
   /**
@@ -80,6 +153,7 @@ public class AsciiFileReader extends Reader implements Runnable{
    */
   protected void doRun()
   {
+    line = LineRingBuffer.fromConfig(options.getReadAhead(), options.getChunkSize());
     fetchThread = new Thread(this, "Ascii.Splitter.Worker");
     fetchThread.start();
   }
@@ -91,7 +165,7 @@ public class AsciiFileReader extends Reader implements Runnable{
   public AsciiFileReader(File file) throws IOException {
     this(file, true);
   }
-  private final SynchronousQueue<byte[]> line = new SynchronousQueue<>();
+  private LineRingBuffer line;
   
   protected static boolean isEOF(byte[] bytes)
   {
@@ -103,7 +177,7 @@ public class AsciiFileReader extends Reader implements Runnable{
    * or a carriage return followed immediately by a linefeed.
    * @return A String containing the contents of the line, not including any line-termination characters, 
    * or null if the end of the stream has been reached
-   * @throws IOException
+   * @throws IOException if the fetch failed, once the lines fetched before the failure are read
    */
   public String readLine() throws IOException
   {
@@ -119,24 +193,76 @@ public class AsciiFileReader extends Reader implements Runnable{
     if(bytes == null)
       throw new IOException(new IllegalStateException("Fetched null bytes"));
     if(isEOF(bytes))
+    {
+      streamComplete = true;
+      checkFetchError();
       return null;
+    }
     
-    return new String(bytes, StandardCharsets.UTF_8);
+    return ByteScanner.decode(bytes, 0, bytes.length, line.isAscii());
     
   }
   private volatile boolean streamComplete;
+  /**
+   * The failure that ended the fetch, if any. Set before the EOF is handed off, so it is seen by the reader along with it.
+   */
+  private volatile IOException fetchError;
+  /**
+   * Rethrows the failure of the fetch, once the lines fetched before it are read.
+   * @throws IOException
+   */
+  private void checkFetchError() throws IOException
+  {
+    if(fetchError != null)
+      throw new IOException("Fetch failed. "+fetchError.getMessage(), fetchError);
+  }
+  /**
+   * Offset in the source of the next byte to split. Accessed by the fetch thread only.
+   */
+  private long streamOffset;
+  /**
+   * Offset in the source just past the last line returned by {@link #readLine()}, including its terminator. 
+   * A load can be resumed from this offset, to continue with the next line.
+   * @return the offset, or -1 if not known
+   */
+  public long getLineEnd() {
+    return line.lastEnd();
+  }
   /**
    * Method to be invoked for signalling an EOF.
    */
   protected void doEOF()
   {
     try {
-      line.put(new byte[]{-1});
-      streamComplete = true;
+      //last line without a terminator
+      if(lineBytesAccumulated != null)
+        offer(streamOffset);
+      //the marker is not decoded
+      line.put(new byte[]{-1}, -1, true);
+      line.flush();
     } catch (InterruptedException e) {
       //throw new InterruptedIOException();
     }
   }
+  /**
+   * Method to be invoked for signalling that the fetch failed. The lines split so far are handed off, without the
+   * partial last line, followed by the EOF, on which the reader fails with the given cause.
+   * @param cause
+   */
+  protected void doError(IOException cause)
+  {
+    fetchError = cause;
+    lineBytesAccumulated = null;
+    doEOF();
+  }
+  /**
+   * Hands off the lines split so far to the reader, without waiting for a full batch. To be
+   * invoked by fetchers of a slow stream, after each available sequence of bytes is split.
+   */
+  protected void flush()
+  {
+    line.flush();
+  }
   /**
    * The method to be overridden for performing a byte fetch
    * from source systems
@@ -144,9 +270,14 @@ public class AsciiFileReader extends Reader implements Runnable{
    */
   protected void doFetch() throws IOException
   {
+    //a followed file may block for appends, so lines are handed off per chunk
+    boolean follow = fileReader instanceof MemoryMappedChunkHandler && ((MemoryMappedChunkHandler) fileReader).isFollow();
     FileChunk chunk = fileReader.readNext();
     while (chunk != null) {
-      splitBytes(chunk.getChunk());
+      splitBytes(chunk.getChunk(), chunk.getLength());
+      chunk.release();
+      if(follow)
+        flush();
       chunk = fileReader.readNext();
     }
     doEOF();
@@ -158,64 +289,57 @@ public class AsciiFileReader extends Reader implements Runnable{
    */
   protected void splitBytes(final byte[] unicodeBytes) throws IOException
   {
-      byte[] oneSplit;
-      int len = unicodeBytes.length;
+    splitBytes(unicodeBytes, unicodeBytes.length);
+  }
+  /**
+   * Check for line termination bytes or accumulate, on the first <code>len</code> bytes of the array.
+   * The array is not retained, so it can be reused once this method returns. The bytes are checked for ASCII
+   * once here, so that the lines need not be checked again when decoded.
+   * @param unicodeBytes
+   * @param len
+   * @throws IOException
+   */
+  protected void splitBytes(final byte[] unicodeBytes, final int len) throws IOException
+  {
+      ByteBuffer scanBuff = ByteBuffer.wrap(unicodeBytes);
+      boolean ascii = ByteScanner.isAscii(scanBuff, 0, len);
       int posOffset = 0; 
       int pos;
-      for (pos = 0; pos < len; pos++)
+      while ((pos = ByteScanner.indexOfTerminator(scanBuff, posOffset, len)) != -1)
       {
+          accumulate(Arrays.copyOfRange(unicodeBytes, posOffset, pos), ascii);
           if(pos < len - 1 && unicodeBytes[pos] == CARRIAGE_RETURN && unicodeBytes[pos+1] == LINE_FEED)
-          {
-            oneSplit = Arrays.copyOfRange(unicodeBytes, posOffset, pos);
             pos++;
-            
-            posOffset = pos +1;
-            accumulate(oneSplit);
-            try {
-              offer();
-            } catch (InterruptedException e) {
-              throw new InterruptedIOException();
-            }            
+          try {
+            offer(streamOffset + pos + 1);
+          } catch (InterruptedException e) {
+            throw new InterruptedIOException();
           }
-          else if(unicodeBytes[pos] == LINE_FEED || unicodeBytes[pos] == CARRIAGE_RETURN)
-          {
-            oneSplit = Arrays.copyOfRange(unicodeBytes, posOffset, pos);
-            
-            posOffset = pos +1;
-            accumulate(oneSplit);
-            try {
-              offer();
-            } catch (InterruptedException e) {
-              throw new InterruptedIOException();
-            }
-          }
-                                          
+          
+          posOffset = pos +1;
       }
       
-      try 
-      {
-        oneSplit = Arrays.copyOfRange(unicodeBytes, posOffset, pos);
-        accumulate(oneSplit);
-      } catch (Exception e) {
-        
-      }
+      accumulate(Arrays.copyOfRange(unicodeBytes, posOffset, len), ascii);
+      streamOffset += len;
       
   }
   
-  private void offer() throws InterruptedException {
+  private void offer(long end) throws InterruptedException {
     if (lineBytesAccumulated.length > 0) {
-      line.put(lineBytesAccumulated);
+      line.put(lineBytesAccumulated, end, accumulatedAscii);
     }
     lineBytesAccumulated = null;
   }
-  private void accumulate(byte[] oneSplit)
+  private void accumulate(byte[] oneSplit, boolean ascii)
   {
     if (lineBytesAccumulated == null) {
       
       lineBytesAccumulated = oneSplit;
+      accumulatedAscii = ascii;
     }
     else
     {
+      accumulatedAscii &= ascii;
       byte[] tmp = new byte[lineBytesAccumulated.length + oneSplit.length];
       System.arraycopy(lineBytesAccumulated, 0, tmp, 0, lineBytesAccumulated.length);
       System.arraycopy(oneSplit, 0, tmp, lineBytesAccumulated.length, oneSplit.length);
@@ -237,6 +361,10 @@ public class AsciiFileReader extends Reader implements Runnable{
       doFetch();
     } catch (IOException e) {
       log.log(Level.SEVERE, "While running on fetch", e);
+      doError(e);
+    } catch (RuntimeException e) {
+      log.log(Level.SEVERE, "While running on fetch", e);
+      doError(new IOException(e));
     }
     log.fine("End run");
   }
@@ -258,9 +386,13 @@ public class AsciiFileReader extends Reader implements Runnable{
       if(bytes == null)
         throw new IOException(new IllegalStateException("Fetched null bytes"));
       if(isEOF(bytes))
+      {
+        streamComplete = true;
+        checkFetchError();
         return -1;
+      }
       
-      charBuffer = new String(bytes, StandardCharsets.UTF_8).toCharArray();
+      charBuffer = ByteScanner.decode(bytes, 0, bytes.length, line.isAscii()).toCharArray();
     }
     if(charBuffer.length > len)
     {
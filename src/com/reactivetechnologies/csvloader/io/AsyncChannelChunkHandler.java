@@ -0,0 +1,169 @@
+/* ============================================================================
+*
+* FILE: AsyncChannelChunkHandler.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+/**
+ * Reads using an {@linkplain AsynchronousFileChannel}, keeping a number of reads in flight ahead of the consumer.
+ * So the disk latency overlaps the processing of the chunks already read, which helps on slow or networked volumes.
+ * The read buffers are recycled from a fixed pool, one per read in flight.
+ */
+class AsyncChannelChunkHandler extends AbstractFileChunkHandler implements Closeable{
+  private static final Logger log = Logger.getLogger(AsyncChannelChunkHandler.class.getSimpleName());
+  
+  private static class PendingRead
+  {
+    final Future<Integer> result;
+    final ByteBuffer buffer;
+    final long position;
+    PendingRead(Future<Integer> result, ByteBuffer buffer, long position) {
+      super();
+      this.result = result;
+      this.buffer = buffer;
+      this.position = position;
+    }
+  }
+  
+  private AsynchronousFileChannel fileChannel;
+  private final Deque<ByteBuffer> bufferPool = new ArrayDeque<>();
+  private final Deque<PendingRead> inFlight = new ArrayDeque<>();
+  private FileChunkPool chunkPool;
+  /**
+   * File offset of the next read to be issued.
+   */
+  private long nextPosition = 0;
+  protected int chunks;
+  protected int idx = 0;
+  protected int readSize;
+  /**
+   * Read mode.
+   * @param f
+   * @param options chunk size, buffer type, and the number of reads to keep in flight
+   * @throws IOException
+   */
+  public AsyncChannelChunkHandler(File f, ReadOptions options) throws IOException {
+    super(f);
+    fileChannel = AsynchronousFileChannel.open(file.toPath(), StandardOpenOption.READ);
+    readSize = options.getChunkSize();
+    chunks = fileSize % readSize == 0 ? (int) ((fileSize / readSize)) : (int) ((fileSize / readSize) + 1);
+    for(int i=0; i<options.getReadAhead(); i++)
+    {
+      bufferPool.add(options.isDirect() ? ByteBuffer.allocateDirect(readSize) : ByteBuffer.allocate(readSize));
+    }
+    chunkPool = new FileChunkPool(this, readSize, CHUNK_POOL_SIZE);
+    debugInitialParams();
+    log.info("Reading source file of ["+fileSize+"] bytes. Expected chunks to read "+chunks+","
+        + " with chunk size "+readSize+" and "+options.getReadAhead()+" read(s) in flight");
+    issueReads();
+  }
+  /**
+   * Issue reads for as many free buffers as available.
+   */
+  private void issueReads()
+  {
+    ByteBuffer buffer;
+    while(nextPosition < fileSize && !bufferPool.isEmpty())
+    {
+      buffer = bufferPool.poll();
+      buffer.clear();
+      inFlight.add(new PendingRead(fileChannel.read(buffer, nextPosition), buffer, nextPosition));
+      nextPosition += readSize;
+    }
+  }
+  
+  private static int await(Future<Integer> result) throws IOException
+  {
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      throw new IOException("Asynchronous read failed", e.getCause());
+    }
+  }
+  
+  @Override
+  public FileChunk readNext() throws IOException {
+    PendingRead pending = inFlight.poll();
+    if(pending == null)
+      return null;
+    
+    int read = await(pending.result);
+    long expected = Math.min(readSize, fileSize - pending.position);
+    //a read may complete with fewer bytes than requested, so fill up the rest
+    while(read != -1 && pending.buffer.position() < expected)
+    {
+      read = await(fileChannel.read(pending.buffer, pending.position + pending.buffer.position()));
+    }
+    pending.buffer.flip();
+    FileChunk chunk = chunkPool.acquire();
+    chunk.setLength(pending.buffer.remaining());
+    pending.buffer.get(chunk.getChunk(), 0, chunk.getLength());
+    bufferPool.add(pending.buffer);
+    issueReads();
+    
+    chunk.setOffset(idx++);
+    chunk.setSize(chunks);
+    return chunk;
+  }
+  /**
+   * Write mode is not supported.
+   */
+  @Override
+  public void writeNext(FileChunk chunk) throws IOException {
+    throw new IOException("Write mode not supported");
+  }
+  
+  @Override
+  public void close() throws IOException {
+    if (fileChannel != null) {
+      fileChannel.close();
+      fileChannel = null;
+    }
+    inFlight.clear();
+    for(ByteBuffer buffer : bufferPool)
+    {
+      MemoryMappedChunkHandler.unmap(buffer);
+    }
+    bufferPool.clear();
+  }
+
+}
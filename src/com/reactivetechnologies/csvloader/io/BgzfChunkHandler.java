@@ -0,0 +1,264 @@
+/* ============================================================================
+*
+* FILE: BgzfChunkHandler.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+/**
+ * Reads a block gzip (BGZF) file, decompressing the blocks in parallel. Each block is an independent gzip
+ * member that records its compressed size in a 'BC' extra subfield, so the blocks can be located without
+ * decompressing, and handed off to a pool of inflater threads. The decompressed blocks are returned in file order,
+ * one chunk per block.
+ */
+class BgzfChunkHandler extends AbstractFileChunkHandler implements Closeable{
+  private static final Logger log = Logger.getLogger(BgzfChunkHandler.class.getSimpleName());
+  
+  private static final int HEADER_SIZE = 12;
+  private static final int TRAILER_SIZE = 8;
+  private static final ThreadLocal<Inflater> inflater = new ThreadLocal<Inflater>(){
+    @Override
+    protected Inflater initialValue() {
+      return new Inflater(true);
+    }
+  };
+  
+  private FileChannel channel;
+  private final ExecutorService inflaters;
+  private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+  private final int window;
+  private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+  /**
+   * File offset of the next block to be read.
+   */
+  private long position = 0;
+  protected int idx = 0;
+  /**
+   * Read mode.
+   * @param f
+   * @param threads number of inflater threads
+   * @throws IOException
+   */
+  public BgzfChunkHandler(File f, int threads) throws IOException {
+    super(f);
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    window = threads * 4;
+    inflaters = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private int n = 0;
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "Bgzf.Inflater-"+(n++));
+        t.setDaemon(true);
+        return t;
+      }
+    });
+    debugInitialParams();
+    log.info("Reading BGZF compressed source file of ["+fileSize+"] bytes, on "+threads+" inflater thread(s)");
+    fill();
+  }
+  /**
+   * Whether the gzip header carries a BGZF 'BC' extra subfield.
+   * @param head at least the first 16 bytes of a gzip member
+   * @return
+   */
+  static boolean isBgzfHeader(byte[] head)
+  {
+    return (head[3] & 4) != 0 && head[12] == 'B' && head[13] == 'C' && head[14] == 2 && head[15] == 0;
+  }
+  
+  private void readFully(ByteBuffer buff, long pos) throws IOException
+  {
+    int read;
+    long at = pos;
+    while(buff.hasRemaining())
+    {
+      read = channel.read(buff, at);
+      if(read == -1)
+        throw new EOFException("Truncated BGZF block at offset "+pos);
+      at += read;
+    }
+  }
+  /**
+   * Reads the next whole block, locating its end from the 'BC' subfield.
+   * @return
+   * @throws IOException
+   */
+  private byte[] readBlock() throws IOException
+  {
+    header.clear();
+    readFully(header, position);
+    byte[] head = header.array();
+    if((head[0] & 0xff) != 0x1f || (head[1] & 0xff) != 0x8b || (head[3] & 4) == 0)
+      throw new IOException("Not a BGZF block at offset "+position);
+    
+    int xlen = (head[10] & 0xff) | (head[11] & 0xff) << 8;
+    ByteBuffer extra = ByteBuffer.allocate(xlen);
+    readFully(extra, position + HEADER_SIZE);
+    byte[] ex = extra.array();
+    int blockSize = -1;
+    for(int i = 0; i + 4 <= xlen; i += 4 + ((ex[i+2] & 0xff) | (ex[i+3] & 0xff) << 8))
+    {
+      if(ex[i] == 'B' && ex[i+1] == 'C' && i + 6 <= xlen)
+      {
+        blockSize = ((ex[i+4] & 0xff) | (ex[i+5] & 0xff) << 8) + 1;
+        break;
+      }
+    }
+    if(blockSize == -1)
+      throw new IOException("No BGZF block size at offset "+position);
+    
+    ByteBuffer block = ByteBuffer.allocate(blockSize);
+    readFully(block, position);
+    position += blockSize;
+    return block.array();
+  }
+  /**
+   * Decompresses a whole block, and verifies the CRC.
+   * @param block
+   * @return
+   * @throws IOException
+   */
+  private static byte[] inflate(byte[] block) throws IOException
+  {
+    int xlen = (block[10] & 0xff) | (block[11] & 0xff) << 8;
+    int dataOffset = HEADER_SIZE + xlen;
+    int dataLength = block.length - dataOffset - TRAILER_SIZE;
+    ByteBuffer trailer = ByteBuffer.wrap(block, block.length - TRAILER_SIZE, TRAILER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    long crc = trailer.getInt() & 0xffffffffL;
+    int size = trailer.getInt();
+    
+    byte[] data = new byte[size];
+    Inflater inf = inflater.get();
+    inf.reset();
+    inf.setInput(block, dataOffset, dataLength);
+    try 
+    {
+      int len = 0;
+      while(len < size && !inf.finished())
+      {
+        int n = inf.inflate(data, len, size - len);
+        if(n == 0 && (inf.needsInput() || inf.needsDictionary()))
+          break;
+        len += n;
+      }
+      if(len != size)
+        throw new IOException("BGZF block inflated to "+len+" bytes, expected "+size);
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt BGZF block", e);
+    }
+    CRC32 check = new CRC32();
+    check.update(data, 0, size);
+    if(check.getValue() != crc)
+      throw new IOException("BGZF block CRC mismatch");
+    
+    return data;
+  }
+  /**
+   * Keep up to a window of blocks submitted for inflating.
+   * @throws IOException
+   */
+  private void fill() throws IOException
+  {
+    while(pending.size() < window && position < fileSize)
+    {
+      final byte[] block = readBlock();
+      pending.add(inflaters.submit(new Callable<byte[]>() {
+        @Override
+        public byte[] call() throws IOException {
+          return inflate(block);
+        }
+      }));
+    }
+  }
+  
+  @Override
+  public FileChunk readNext() throws IOException {
+    byte[] data;
+    do
+    {
+      Future<byte[]> next = pending.poll();
+      if(next == null)
+        return null;
+      try {
+        data = next.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      } catch (ExecutionException e) {
+        throw new IOException("Unable to inflate block", e.getCause());
+      }
+      fill();
+    }
+    //skip empty blocks, like the EOF marker block
+    while(data.length == 0);
+    
+    FileChunk chunk = new FileChunk(fileName, fileSize, creationTime, lastAccessTime, lastModifiedTime);
+    chunk.setChunk(data);
+    chunk.setOffset(idx++);
+    chunk.setSize(0);
+    return chunk;
+  }
+  /**
+   * Write mode is not supported.
+   */
+  @Override
+  public void writeNext(FileChunk chunk) throws IOException {
+    throw new IOException("Write mode not supported");
+  }
+
+  @Override
+  public void close() throws IOException {
+    inflaters.shutdownNow();
+    pending.clear();
+    if(channel != null)
+    {
+      channel.close();
+      channel = null;
+    }
+  }
+
+}
@@ -88,16 +88,38 @@ class ByteChannelChunkHandler extends AbstractFileChunkHandler implements Closea
    * @throws IOException
    */
   public ByteChannelChunkHandler(File f, int chunkSize) throws IOException {
+    this(f, chunkSize, false);
+  }
+  /**
+   * Read mode with the chunk size and buffer type of the given options.
+   * @param f
+   * @param options
+   * @throws IOException
+   */
+  public ByteChannelChunkHandler(File f, ReadOptions options) throws IOException {
+    this(f, options.getChunkSize(), options.isDirect());
+  }
+  /**
+   * Read mode.
+   * @param f
+   * @param chunkSize
+   * @param direct whether to read into a direct buffer
+   * @throws IOException
+   */
+  public ByteChannelChunkHandler(File f, int chunkSize, boolean direct) throws IOException {
     super(f);
     fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
     readSize = chunkSize;
+    this.direct = direct;
     chunks = fileSize % readSize == 0 ? (int) ((fileSize / readSize)) : (int) ((fileSize / readSize) + 1);
-    buffer = ByteBuffer.allocate(readSize);
+    buffer = direct ? ByteBuffer.allocateDirect(readSize) : ByteBuffer.allocate(readSize);
+    chunkPool = new FileChunkPool(this, readSize, CHUNK_POOL_SIZE);
     debugInitialParams();
     log.info("Reading source file of ["+fileSize+"] bytes. Expected chunks to read "+chunks+","
-        + " with chunk size "+readSize);
+        + " with chunk size "+readSize+(direct ? " (direct)" : ""));
   }
   private ByteBuffer buffer;
+  private FileChunkPool chunkPool;
   protected int chunks;
   @Override
   public void close() throws IOException {
@@ -122,11 +144,10 @@ class ByteChannelChunkHandler extends AbstractFileChunkHandler implements Closea
     if(read == -1)
       return null;
     buffer.flip();
-    byte[] bytes = new byte[read];
-    buffer.get(bytes);
+    FileChunk chunk = chunkPool.acquire();
+    buffer.get(chunk.getChunk(), 0, read);
+    chunk.setLength(read);
     buffer.clear();
-    FileChunk chunk = new FileChunk(fileName, fileSize, creationTime, lastAccessTime, lastModifiedTime);
-    chunk.setChunk(bytes);
     chunk.setOffset(idx++);
     chunk.setSize(chunks);
     //log.debug("[readNext] "+chunk);
@@ -148,10 +169,10 @@ class ByteChannelChunkHandler extends AbstractFileChunkHandler implements Closea
             
     }
     
-    fileSize += chunk.getChunk().length;
+    fileSize += chunk.getLength();
     
     buffer.clear();
-    buffer.put(chunk.getChunk());
+    buffer.put(chunk.getChunk(), 0, chunk.getLength());
     buffer.flip();
     fileChannel.write(buffer);
         
@@ -0,0 +1,175 @@
+/* ============================================================================
+*
+* FILE: ByteScanner.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+/**
+ * Word at a time (SWAR) byte scanning. Eight bytes are read as a single <code>long</code> from the buffer, 
+ * and all of them are tested for a match with a few arithmetic operations, instead of a compare and branch
+ * per byte. The trailing bytes that do not make up a full word are scanned byte wise.
+ */
+public final class ByteScanner {
+
+  private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+  private static final long HIGH_BITS = 0x8080808080808080L;
+  private static final long ONES = 0x0101010101010101L;
+  private static final long LF_WORD = ONES * AsciiFileReader.LINE_FEED;
+  private static final long CR_WORD = ONES * AsciiFileReader.CARRIAGE_RETURN;
+  
+  private ByteScanner() {
+  }
+  /**
+   * A word with the high bit set in each byte that is zero, and all other bits clear. Unlike the common
+   * <code>(v - 0x01..) & ~v & 0x80..</code> test, this does not give false positives, so the match 
+   * position is exact irrespective of the byte order.
+   * @param word
+   * @return
+   */
+  private static long zeroBytes(long word)
+  {
+    long t = (word & LOW_BITS) + LOW_BITS;
+    return ~(t | word | LOW_BITS);
+  }
+  /**
+   * Index of the first matched byte in a word read at the given byte order.
+   * @param match
+   * @param order
+   * @return
+   */
+  private static int firstMatch(long match, ByteOrder order)
+  {
+    return (order == ByteOrder.LITTLE_ENDIAN ? Long.numberOfTrailingZeros(match) : Long.numberOfLeadingZeros(match)) >>> 3;
+  }
+  /**
+   * Index of the first line feed or carriage return in the buffer, within the given absolute bounds.
+   * @param buff
+   * @param from start index (inclusive)
+   * @param to end index (exclusive)
+   * @return the index, or -1 if not found
+   */
+  public static int indexOfTerminator(ByteBuffer buff, int from, int to)
+  {
+    int i = from;
+    if(to - from >= 8)
+    {
+      ByteOrder order = buff.order();
+      long word, match;
+      for(; i <= to - 8; i += 8)
+      {
+        word = buff.getLong(i);
+        match = zeroBytes(word ^ LF_WORD) | zeroBytes(word ^ CR_WORD);
+        if(match != 0)
+          return i + firstMatch(match, order);
+      }
+    }
+    byte b;
+    for(; i < to; i++)
+    {
+      b = buff.get(i);
+      if(b == AsciiFileReader.LINE_FEED || b == AsciiFileReader.CARRIAGE_RETURN)
+        return i;
+    }
+    return -1;
+  }
+  /**
+   * Index of the first occurrence of the byte (for e.g. a field delimiter) in the buffer, within the given absolute bounds.
+   * @param buff
+   * @param b
+   * @param from start index (inclusive)
+   * @param to end index (exclusive)
+   * @return the index, or -1 if not found
+   */
+  public static int indexOf(ByteBuffer buff, byte b, int from, int to)
+  {
+    int i = from;
+    if(to - from >= 8)
+    {
+      ByteOrder order = buff.order();
+      long pattern = ONES * (b & 0xFF), match;
+      for(; i <= to - 8; i += 8)
+      {
+        match = zeroBytes(buff.getLong(i) ^ pattern);
+        if(match != 0)
+          return i + firstMatch(match, order);
+      }
+    }
+    for(; i < to; i++)
+    {
+      if(buff.get(i) == b)
+        return i;
+    }
+    return -1;
+  }
+  /**
+   * Whether all bytes within the given absolute bounds are ASCII, i.e have the high bit clear. The words are 
+   * OR-ed together and tested once, so the loop has no branch per word.
+   * @param buff
+   * @param from start index (inclusive)
+   * @param to end index (exclusive)
+   * @return
+   */
+  public static boolean isAscii(ByteBuffer buff, int from, int to)
+  {
+    int i = from;
+    long bits = 0;
+    for(; i <= to - 8; i += 8)
+      bits |= buff.getLong(i);
+    for(; i < to; i++)
+      bits |= buff.get(i);
+    return (bits & HIGH_BITS) == 0;
+  }
+  /**
+   * Decodes UTF-8 bytes to a string. ASCII text is copied as Latin-1, which skips the UTF-8 decoder, and gives a 
+   * compact (one byte per char) string on runtimes that support it.
+   * @param bytes
+   * @param offset
+   * @param length
+   * @return
+   */
+  public static String decode(byte[] bytes, int offset, int length)
+  {
+    return decode(bytes, offset, length, isAscii(ByteBuffer.wrap(bytes), offset, offset + length));
+  }
+  /**
+   * Decodes UTF-8 bytes to a string, given whether they are known to be ASCII, for e.g. from a check on the 
+   * whole chunk they were read in.
+   * @param bytes
+   * @param offset
+   * @param length
+   * @param ascii
+   * @return
+   */
+  public static String decode(byte[] bytes, int offset, int length, boolean ascii)
+  {
+    return ascii ? new String(bytes, offset, length, StandardCharsets.ISO_8859_1)
+        : new String(bytes, offset, length, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,128 @@
+/* ============================================================================
+*
+* FILE: ByteSequence.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.io;
+
+import java.nio.ByteBuffer;
+/**
+ * A read only view over a region of a {@linkplain ByteBuffer}, that does not copy the underlying bytes. An instance
+ * is reused by its reader and is valid only until the next line is read. Characters are returned byte wise, which is
+ * exact for ASCII text. Use {@link #toString()} to get the UTF-8 decoded content.
+ */
+public class ByteSequence implements CharSequence {
+
+  private ByteBuffer buffer;
+  private int offset, length;
+  private byte[] scratch;
+  
+  ByteSequence() {
+    super();
+  }
+  /**
+   * Point this view to a region of the buffer.
+   * @param buffer
+   * @param offset
+   * @param length
+   */
+  void set(ByteBuffer buffer, int offset, int length)
+  {
+    this.buffer = buffer;
+    this.offset = offset;
+    this.length = length;
+  }
+  /**
+   * The byte at the given index.
+   * @param index
+   * @return
+   */
+  public byte byteAt(int index)
+  {
+    if(index < 0 || index >= length)
+      throw new IndexOutOfBoundsException(String.valueOf(index));
+    return buffer.get(offset + index);
+  }
+  /**
+   * Index of the first occurrence of the byte, starting at the given index, or -1 if not found.
+   * @param b
+   * @param fromIndex
+   * @return
+   */
+  public int indexOf(byte b, int fromIndex)
+  {
+    int i = ByteScanner.indexOf(buffer, b, offset + fromIndex, offset + length);
+    return i != -1 ? i - offset : -1;
+  }
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    return (char) (byteAt(index) & 0xff);
+  }
+  /**
+   * Copies the bytes of this sequence into the given array.
+   * @param dest
+   * @param destPos
+   */
+  public void copyTo(byte[] dest, int destPos)
+  {
+    buffer.position(offset);
+    buffer.get(dest, destPos, length);
+  }
+  /**
+   * A new view over a part of this region. Note that this allocates a new instance.
+   */
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    if(start < 0 || end > length || start > end)
+      throw new IndexOutOfBoundsException("start "+start+", end "+end+", length "+length);
+    ByteSequence sub = new ByteSequence();
+    sub.set(buffer, offset + start, end - start);
+    return sub;
+  }
+  /**
+   * Decodes the bytes as UTF-8. The bytes are staged through a reusable array, so the only allocation is of the
+   * returned string.
+   */
+  @Override
+  public String toString() {
+    if(scratch == null || scratch.length < length)
+      scratch = new byte[Math.max(length, 128)];
+    copyTo(scratch, 0);
+    return ByteScanner.decode(scratch, 0, length);
+  }
+  /**
+   * Offset of this region in the underlying buffer.
+   * @return
+   */
+  public int getOffset() {
+    return offset;
+  }
+}
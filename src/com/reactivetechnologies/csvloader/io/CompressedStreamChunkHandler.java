@@ -0,0 +1,119 @@
+/* ============================================================================
+*
+* FILE: CompressedStreamChunkHandler.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.logging.Logger;
+
+import com.reactivetechnologies.csvloader.ConfigLoader;
+/**
+ * Reads a compressed file, decompressing while streaming, so that no temporary file is needed. 
+ * The chunks are of decompressed bytes.
+ * @see CompressionCodec
+ */
+class CompressedStreamChunkHandler extends AbstractFileChunkHandler implements Closeable{
+  private static final Logger log = Logger.getLogger(CompressedStreamChunkHandler.class.getSimpleName());
+  
+  private InputStream in;
+  private FileChunkPool chunkPool;
+  protected int idx = 0;
+  protected int readSize;
+  /**
+   * A handler for the compressed file. Block gzip files are decompressed in parallel, unless 
+   * {@link ConfigLoader#SYS_PROP_INFLATE_THREADS} is set to 1.
+   * @param f
+   * @param codec
+   * @param options
+   * @return
+   * @throws IOException
+   */
+  static AbstractFileChunkHandler open(File f, CompressionCodec codec, ReadOptions options) throws IOException
+  {
+    int threads = Integer.getInteger(ConfigLoader.SYS_PROP_INFLATE_THREADS, Runtime.getRuntime().availableProcessors());
+    if(codec == CompressionCodec.BGZF && threads > 1)
+      return new BgzfChunkHandler(f, threads);
+    
+    return new CompressedStreamChunkHandler(f, codec, options);
+  }
+  /**
+   * Read mode.
+   * @param f
+   * @param codec
+   * @param options
+   * @throws IOException
+   */
+  public CompressedStreamChunkHandler(File f, CompressionCodec codec, ReadOptions options) throws IOException {
+    super(f);
+    in = codec.open(file);
+    readSize = options.getChunkSize();
+    chunkPool = new FileChunkPool(this, readSize, CHUNK_POOL_SIZE);
+    debugInitialParams();
+    log.info("Reading "+codec+" compressed source file of ["+fileSize+"] bytes, with chunk size "+readSize);
+  }
+
+  @Override
+  public FileChunk readNext() throws IOException {
+    FileChunk chunk = chunkPool.acquire();
+    byte[] bytes = chunk.getChunk();
+    int len = 0, read;
+    while(len < readSize && (read = in.read(bytes, len, readSize - len)) != -1)
+      len += read;
+    
+    if(len == 0)
+    {
+      chunk.release();
+      return null;
+    }
+    chunk.setLength(len);
+    chunk.setOffset(idx++);
+    //the number of decompressed chunks is not known upfront
+    chunk.setSize(0);
+    return chunk;
+  }
+  /**
+   * Write mode is not supported.
+   */
+  @Override
+  public void writeNext(FileChunk chunk) throws IOException {
+    throw new IOException("Write mode not supported");
+  }
+
+  @Override
+  public void close() throws IOException {
+    if(in != null)
+    {
+      in.close();
+      in = null;
+    }
+  }
+
+}
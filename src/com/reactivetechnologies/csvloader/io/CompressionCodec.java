@@ -0,0 +1,108 @@
+/* ============================================================================
+*
+* FILE: CompressionCodec.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.io;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+/**
+ * Compression formats supported for input files, detected by the magic bytes at the start of the file.
+ * Gzip (including block gzip) is decompressed with the JDK. Zstandard and LZ4 frame formats need the
+ * respective library on the classpath, and are loaded reflectively.
+ */
+public enum CompressionCodec {
+
+  GZIP(null),
+  /**
+   * Block gzip (bgzip), a series of independent gzip members of at most 64 KB each, which can be
+   * decompressed in parallel.
+   */
+  BGZF(null),
+  ZSTD("com.github.luben.zstd.ZstdInputStream"),
+  LZ4("net.jpountz.lz4.LZ4FrameInputStream");
+  
+  static final int STREAM_BUFF_SIZE = 65536;
+  private final String streamClass;
+  private CompressionCodec(String streamClass) {
+    this.streamClass = streamClass;
+  }
+  /**
+   * A decompressing stream over the file.
+   * @param file
+   * @return
+   * @throws IOException
+   */
+  InputStream open(File file) throws IOException
+  {
+    InputStream in = new FileInputStream(file);
+    try 
+    {
+      if(streamClass == null)
+        return new GZIPInputStream(in, STREAM_BUFF_SIZE);
+      
+      return new BufferedInputStream((InputStream) Class.forName(streamClass).getConstructor(InputStream.class).newInstance(in),
+          STREAM_BUFF_SIZE);
+    } 
+    catch (IOException e) {
+      in.close();
+      throw e;
+    }
+    catch (Exception e) {
+      in.close();
+      throw new IOException("Unable to open "+this+" stream. Is "+streamClass+" available on classpath?", e);
+    }
+  }
+  /**
+   * Detects the compression format of the file from its leading bytes.
+   * @param file
+   * @return the codec, or null if the file is not compressed in any supported format
+   * @throws IOException
+   */
+  public static CompressionCodec detect(File file) throws IOException
+  {
+    byte[] head = new byte[16];
+    int len = 0, read;
+    try(InputStream in = new FileInputStream(file))
+    {
+      while(len < head.length && (read = in.read(head, len, head.length - len)) != -1)
+        len += read;
+    }
+    if(len >= 4 && (head[0] & 0xff) == 0x28 && (head[1] & 0xff) == 0xb5 && (head[2] & 0xff) == 0x2f && (head[3] & 0xff) == 0xfd)
+      return ZSTD;
+    if(len >= 4 && (head[0] & 0xff) == 0x04 && (head[1] & 0xff) == 0x22 && (head[2] & 0xff) == 0x4d && (head[3] & 0xff) == 0x18)
+      return LZ4;
+    if(len >= 3 && (head[0] & 0xff) == 0x1f && (head[1] & 0xff) == 0x8b && head[2] == 8)
+      return len >= 16 && BgzfChunkHandler.isBgzfHeader(head) ? BGZF : GZIP;
+    
+    return null;
+  }
+}
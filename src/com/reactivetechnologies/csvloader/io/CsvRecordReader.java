@@ -0,0 +1,305 @@
+/* ============================================================================
+*
+* FILE: CsvRecordReader.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+/**
+ * A streaming CSV parser, as per RFC 4180. Fields may be enclosed in double quotes, in which case they can contain
+ * the delimiter, line breaks, and double quotes escaped by a preceding double quote. The parser is a single pass
+ * state machine over the bytes of the file chunks, so records are split and tokenized together, and a quoted line
+ * break does not end the record. The file is read on the calling thread.
+ * <p>The parser is lenient on malformed input. Text following a closing quote is appended to the field, and a quote
+ * inside an unquoted field is taken literally. Blank lines are skipped, same as the line readers.
+ * <p><b>NOTE:</b> This class is not thread safe.
+ */
+public class CsvRecordReader implements Closeable {
+
+  static final byte QUOTE = '"';
+  
+  private static final int START = 0, UNQUOTED = 1, QUOTED = 2, QUOTE_SEEN = 3;
+  
+  private final AbstractFileChunkHandler handler;
+  private final byte delimiter;
+  private FileChunk chunk;
+  private byte[] data;
+  private int pos, len;
+  /**
+   * Whether the current chunk is all ASCII, so fields can be decoded without checking each.
+   */
+  private boolean asciiChunk;
+  /**
+   * Offset in the source of the first byte of the current chunk.
+   */
+  private long chunkOffset;
+  private long recordEnd = -1;
+  private boolean eof;
+  
+  private byte[] field = new byte[256];
+  private int fieldLen;
+  private String[] values = new String[16];
+  private int count;
+  /**
+   * New reader over the whole file.
+   * @param file
+   * @param delimiter
+   * @param memMappedIO whether to use mapped byte buffer
+   * @throws IOException
+   */
+  public CsvRecordReader(File file, byte delimiter, boolean memMappedIO) throws IOException {
+    this(AsciiFileReader.openHandler(file, memMappedIO, ReadOptions.fromConfig(file)), delimiter, 0);
+  }
+  /**
+   * New reader from the given offset till the end of file, using memory mapped IO. The offset should be at 
+   * the start of a record.
+   * @param file
+   * @param delimiter
+   * @param offset
+   * @throws IOException
+   * @see #getRecordEnd()
+   */
+  public CsvRecordReader(File file, byte delimiter, long offset) throws IOException {
+    this(new MemoryMappedChunkHandler(file, ReadOptions.fromConfig(file), offset, file.length()), delimiter, offset);
+  }
+  private CsvRecordReader(AbstractFileChunkHandler handler, byte delimiter, long offset) {
+    if(delimiter == QUOTE || delimiter == AsciiFileReader.LINE_FEED || delimiter == AsciiFileReader.CARRIAGE_RETURN)
+      throw new IllegalArgumentException("Invalid delimiter: "+delimiter);
+    this.handler = handler;
+    this.delimiter = delimiter;
+    this.chunkOffset = offset;
+  }
+  /**
+   * The single byte delimiter for a separator, as given in configuration. The separator is a regular expression 
+   * for the split based parsing, so an escaped character like <code>\|</code> or <code>\t</code> is accepted as well.
+   * @param separator
+   * @return the delimiter byte, or -1 if the separator is not a single ASCII character
+   */
+  public static int toDelimiter(String separator)
+  {
+    String literal = FieldTokenizer.toLiteral(separator);
+    if(literal != null && literal.length() == 1 && literal.charAt(0) < 0x80)
+      return literal.charAt(0);
+    
+    return -1;
+  }
+  
+  private boolean fill() throws IOException
+  {
+    if(chunk != null)
+    {
+      chunkOffset += len;
+      chunk.release();
+      chunk = null;
+    }
+    if(eof)
+      return false;
+    
+    chunk = handler.readNext();
+    if(chunk == null)
+    {
+      eof = true;
+      len = pos = 0;
+      return false;
+    }
+    data = chunk.getChunk();
+    len = chunk.getLength();
+    pos = 0;
+    asciiChunk = ByteScanner.isAscii(ByteBuffer.wrap(data), 0, len);
+    return true;
+  }
+  
+  private void append(byte[] src, int from, int length)
+  {
+    if(fieldLen + length > field.length)
+      field = Arrays.copyOf(field, Math.max(field.length * 2, fieldLen + length));
+    System.arraycopy(src, from, field, fieldLen, length);
+    fieldLen += length;
+  }
+  
+  private void endField()
+  {
+    if(count == values.length)
+      values = Arrays.copyOf(values, count * 2);
+    values[count++] = ByteScanner.decode(field, 0, fieldLen);
+    fieldLen = 0;
+  }
+  /**
+   * Adds a field lying within the current chunk.
+   */
+  private void addField(byte[] src, int from, int length)
+  {
+    if(count == values.length)
+      values = Arrays.copyOf(values, count * 2);
+    values[count++] = asciiChunk ? new String(src, from, length, StandardCharsets.ISO_8859_1) 
+        : new String(src, from, length, StandardCharsets.UTF_8);
+  }
+  /**
+   * Reads the next record.
+   * @return the field values, or null if the end of file has been reached
+   * @throws IOException
+   */
+  public String[] readRecord() throws IOException
+  {
+    count = 0;
+    fieldLen = 0;
+    boolean inRecord = false;
+    int state = START;
+    byte b = 0;
+    while(true)
+    {
+      if(pos == len && !fill())
+      {
+        if(!inRecord)
+          return null;
+        //last record without a terminator
+        endField();
+        recordEnd = chunkOffset;
+        return Arrays.copyOf(values, count);
+      }
+      
+      final byte[] d = data;
+      final int n = len;
+      int p = pos;
+      while(p < n)
+      {
+        switch(state)
+        {
+          case START:
+            b = d[p];
+            if(b == QUOTE)
+            {
+              p++;
+              state = QUOTED;
+              inRecord = true;
+              break;
+            }
+            if((b == AsciiFileReader.LINE_FEED || b == AsciiFileReader.CARRIAGE_RETURN) && !inRecord)
+            {
+              //blank line, or the line feed following a carriage return
+              p++;
+              break;
+            }
+            //scanned as unquoted, on the next pass from the same byte
+            state = UNQUOTED;
+            inRecord = true;
+            break;
+          case UNQUOTED:
+            int from = p;
+            while(p < n && (b = d[p]) != delimiter && b != AsciiFileReader.LINE_FEED && b != AsciiFileReader.CARRIAGE_RETURN)
+              p++;
+            if(p < n)
+            {
+              if(fieldLen == 0)
+                //whole field is within the chunk
+                addField(d, from, p - from);
+              else
+              {
+                append(d, from, p - from);
+                endField();
+              }
+              p++;
+              if(b != delimiter)
+              {
+                pos = p;
+                recordEnd = chunkOffset + p;
+                return Arrays.copyOf(values, count);
+              }
+              state = START;
+            }
+            else
+              append(d, from, p - from);
+            break;
+          case QUOTED:
+            from = p;
+            while(p < n && d[p] != QUOTE)
+              p++;
+            append(d, from, p - from);
+            if(p < n)
+            {
+              p++;
+              state = QUOTE_SEEN;
+            }
+            break;
+          case QUOTE_SEEN:
+            b = d[p++];
+            if(b == QUOTE)
+            {
+              //escaped quote
+              append(d, p - 1, 1);
+              state = QUOTED;
+            }
+            else if(b == delimiter)
+            {
+              endField();
+              state = START;
+            }
+            else if(b == AsciiFileReader.LINE_FEED || b == AsciiFileReader.CARRIAGE_RETURN)
+            {
+              endField();
+              pos = p;
+              recordEnd = chunkOffset + p;
+              return Arrays.copyOf(values, count);
+            }
+            else
+            {
+              //text after the closing quote
+              append(d, p - 1, 1);
+              state = UNQUOTED;
+            }
+            break;
+          default:
+            break;
+        }
+      }
+      pos = p;
+    }
+  }
+  /**
+   * Offset in the source just past the last record read, including its terminator. A load can be 
+   * resumed from this offset, to continue with the next record.
+   * @return the offset, or -1 if no record was read
+   */
+  public long getRecordEnd() {
+    return recordEnd;
+  }
+  
+  @Override
+  public void close() throws IOException {
+    if(chunk != null)
+    {
+      chunk.release();
+      chunk = null;
+    }
+    handler.close();
+  }
+}
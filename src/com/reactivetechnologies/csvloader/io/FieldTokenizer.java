@@ -0,0 +1,199 @@
+/* ============================================================================
+*
+* FILE: FieldTokenizer.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.io;
+
+import java.util.Arrays;
+/**
+ * Splits a line on a literal delimiter, without regular expressions. The field boundaries are kept as offsets into
+ * the line, in arrays that are reused across lines, and grow to the number of columns. Field strings are created only
+ * when asked for. Gives the same fields as <code>String.split(delimiter, -1)</code>, including trailing empty fields.
+ * <p><b>NOTE:</b> This class is not thread safe. It is meant to be kept per reading thread.
+ */
+public class FieldTokenizer {
+
+  private static final String REGEX_META = ".$|()[]{}^?*+\\";
+  
+  private final String delimiter;
+  private final char single;
+  private int[] starts = new int[16], ends = new int[16];
+  private int count;
+  private CharSequence line;
+  /**
+   * 
+   * @param delimiter literal delimiter
+   */
+  public FieldTokenizer(String delimiter) {
+    if(delimiter == null || delimiter.isEmpty())
+      throw new IllegalArgumentException("Delimiter should not be empty");
+    this.delimiter = delimiter;
+    single = delimiter.length() == 1 ? delimiter.charAt(0) : 0;
+  }
+  /**
+   * A tokenizer for a separator, as given in configuration. The separator is a regular expression for
+   * <code>String.split</code>, so escaped forms like <code>\|</code> or <code>\t</code> are unescaped.
+   * @param separator
+   * @return the tokenizer, or null if the separator is not a literal
+   */
+  public static FieldTokenizer forSeparator(String separator)
+  {
+    String literal = toLiteral(separator);
+    return literal != null && !literal.isEmpty() ? new FieldTokenizer(literal) : null;
+  }
+  /**
+   * The literal text matched by a regular expression, if it consists of plain or escaped characters only.
+   * @param regex
+   * @return the literal, or null if the expression has any special constructs
+   */
+  public static String toLiteral(String regex)
+  {
+    StringBuilder literal = new StringBuilder(regex.length());
+    for(int i = 0; i < regex.length(); i++)
+    {
+      char c = regex.charAt(i);
+      if(c == '\\')
+      {
+        if(++i == regex.length())
+          return null;
+        c = regex.charAt(i);
+        if(c == 't')
+          c = '\t';
+        else if(c == 'n')
+          c = '\n';
+        else if(c == 'r')
+          c = '\r';
+        else if(Character.isLetterOrDigit(c))
+          return null;
+      }
+      else if(REGEX_META.indexOf(c) != -1)
+        return null;
+      literal.append(c);
+    }
+    return literal.toString();
+  }
+  
+  /**
+   * The literal delimiter.
+   * @return
+   */
+  public String getDelimiter() {
+    return delimiter;
+  }
+  private void add(int start, int end)
+  {
+    if(count == starts.length)
+    {
+      starts = Arrays.copyOf(starts, count * 2);
+      ends = Arrays.copyOf(ends, count * 2);
+    }
+    starts[count] = start;
+    ends[count++] = end;
+  }
+  
+  private int indexOf(CharSequence seq, int from)
+  {
+    if(seq instanceof String)
+      return single != 0 ? ((String) seq).indexOf(single, from) : ((String) seq).indexOf(delimiter, from);
+    
+    int last = seq.length() - delimiter.length();
+    for(int i = from; i <= last; i++)
+    {
+      if(seq.charAt(i) == delimiter.charAt(0))
+      {
+        int j = 1;
+        while(j < delimiter.length() && seq.charAt(i + j) == delimiter.charAt(j))
+          j++;
+        if(j == delimiter.length())
+          return i;
+      }
+    }
+    return -1;
+  }
+  /**
+   * Splits the line into fields.
+   * @param seq the line
+   * @return number of fields
+   */
+  public int tokenize(CharSequence seq)
+  {
+    line = seq;
+    count = 0;
+    int from = 0, at;
+    while((at = indexOf(seq, from)) != -1)
+    {
+      add(from, at);
+      from = at + delimiter.length();
+    }
+    add(from, seq.length());
+    return count;
+  }
+  /**
+   * Number of fields in the last line tokenized.
+   * @return
+   */
+  public int getCount() {
+    return count;
+  }
+  /**
+   * Start offset of a field in the line.
+   * @param i field index
+   * @return
+   */
+  public int start(int i) {
+    return starts[i];
+  }
+  /**
+   * End offset (exclusive) of a field in the line.
+   * @param i field index
+   * @return
+   */
+  public int end(int i) {
+    return ends[i];
+  }
+  /**
+   * The text of a field.
+   * @param i field index
+   * @return
+   */
+  public String field(int i) {
+    if(line instanceof String)
+      return ((String) line).substring(starts[i], ends[i]);
+    return line.subSequence(starts[i], ends[i]).toString();
+  }
+  /**
+   * All fields of the last line tokenized, as a new array.
+   * @return
+   */
+  public String[] toArray()
+  {
+    String[] values = new String[count];
+    for(int i = 0; i < count; i++)
+      values[i] = field(i);
+    return values;
+  }
+}
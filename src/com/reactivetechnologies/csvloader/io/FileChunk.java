@@ -32,7 +32,9 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 /**
- * A wrapper class for a chunk of file bytes.
+ * A wrapper class for a chunk of file bytes. Chunks read from a file may be pooled, in which case
+ * the backing array can be larger than the bytes read, given by {@link #getLength()}, and the chunk
+ * should be {@link #release() released} once consumed.
  */
 public class FileChunk {
 
@@ -81,7 +83,7 @@ public class FileChunk {
     return "FileChunk [fileName=" + fileName + ", fileSize=" + fileSize
         + ", creationTime=" + creationTime + ", lastAccessTime="
         + lastAccessTime + ", lastModifiedTime=" + lastModifiedTime + ", size="
-        + size + ", offset=" + offset + ", chunkLength=" + chunk.length
+        + size + ", offset=" + offset + ", chunkLength=" + length
         + "]";
   }
 
@@ -97,6 +99,11 @@ public class FileChunk {
    */
   private int offset;
   private byte[] chunk;
+  private int length;
+  /**
+   * The pool to return to on release, if pooled.
+   */
+  FileChunkPool pool;
   
   /**
    * No of chunks.
@@ -123,8 +130,32 @@ public class FileChunk {
     return chunk;
   }
 
+  /**
+   * Sets the chunk bytes, all of which are valid.
+   * @param chunk
+   */
   public void setChunk(byte[] chunk) {
     this.chunk = chunk;
+    this.length = chunk != null ? chunk.length : 0;
+  }
+  /**
+   * No of valid bytes in the chunk array, starting at 0.
+   * @return
+   */
+  public int getLength() {
+    return length;
+  }
+
+  public void setLength(int length) {
+    this.length = length;
+  }
+  /**
+   * Returns this chunk to its pool, if pooled. The chunk must not be accessed after release.
+   */
+  public void release()
+  {
+    if(pool != null)
+      pool.release(this);
   }
 
   /**
@@ -173,9 +204,9 @@ public class FileChunk {
     out.writeLong(getLastModifiedTime());
     out.writeInt(getSize());
     out.writeInt(getOffset());
-    out.writeInt(getChunk() != null ? getChunk().length : -1);
+    out.writeInt(getChunk() != null ? getLength() : -1);
     if (getChunk() != null) {
-      out.write(getChunk());
+      out.write(getChunk(), 0, getLength());
     }
 
   }
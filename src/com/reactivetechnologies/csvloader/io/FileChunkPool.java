@@ -0,0 +1,76 @@
+/* ============================================================================
+*
+* FILE: FileChunkPool.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.io;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+/**
+ * A bounded pool of recyclable {@linkplain FileChunk}, for reading a file. The chunks carry the file metadata
+ * and a backing array of the chunk size, both set once on creation. A chunk is returned to the pool by 
+ * {@link FileChunk#release()}. Acquiring never waits; if the pool is empty a new chunk is created, which is 
+ * retained on release only if the pool has room.
+ */
+class FileChunkPool {
+
+  private final BlockingQueue<FileChunk> free;
+  private final AbstractFileChunkHandler handler;
+  private final int chunkSize;
+  /**
+   * 
+   * @param handler the file handler, for the metadata
+   * @param chunkSize size of the backing array
+   * @param capacity max chunks to retain
+   */
+  FileChunkPool(AbstractFileChunkHandler handler, int chunkSize, int capacity) {
+    this.handler = handler;
+    this.chunkSize = chunkSize;
+    free = new ArrayBlockingQueue<>(capacity);
+  }
+  /**
+   * A free chunk, with a backing array of the chunk size.
+   * @return
+   */
+  FileChunk acquire()
+  {
+    FileChunk chunk = free.poll();
+    if(chunk == null)
+    {
+      chunk = new FileChunk(handler.getFileName(), handler.getFileSize(), handler.getCreationTime(),
+          handler.getLastAccessTime(), handler.getLastModifiedTime());
+      chunk.setChunk(new byte[chunkSize]);
+      chunk.pool = this;
+    }
+    return chunk;
+  }
+  
+  void release(FileChunk chunk)
+  {
+    free.offer(chunk);
+  }
+}
@@ -0,0 +1,168 @@
+/* ============================================================================
+*
+* FILE: FileRange.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+/**
+ * A byte range of a file, with the boundaries aligned on line terminators. A file split into ranges
+ * can be read concurrently, with an {@linkplain AsciiFileReader} per range.
+ */
+public class FileRange {
+
+  private final long start;
+  private final long end;
+  /**
+   * 
+   * @param start start offset (inclusive)
+   * @param end end offset (exclusive)
+   */
+  public FileRange(long start, long end) {
+    super();
+    this.start = start;
+    this.end = end;
+  }
+  /**
+   * Splits the file into (at most) the given number of ranges of near equal size. Each nominal
+   * boundary is moved forward to just past the next line terminator, so that no line spans two ranges.
+   * @param file
+   * @param splits
+   * @return
+   * @throws IOException
+   */
+  public static List<FileRange> split(File file, int splits) throws IOException
+  {
+    long size = file.length();
+    List<FileRange> ranges = new ArrayList<>(splits);
+    try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+    {
+      long start = 0, end;
+      for(int i=1; i<=splits && start < size; i++)
+      {
+        end = i == splits ? size : alignToLine(channel, Math.max(start, size / splits * i), size);
+        ranges.add(new FileRange(start, end));
+        start = end;
+      }
+    }
+    return ranges;
+  }
+  /**
+   * Position just after the first line terminator found at or after the given offset. A carriage return
+   * followed immediately by a line feed is considered a single terminator.
+   * @param channel
+   * @param pos
+   * @param size
+   * @return
+   * @throws IOException
+   */
+  private static long alignToLine(FileChannel channel, long pos, long size) throws IOException
+  {
+    ByteBuffer buff = ByteBuffer.allocate(8192);
+    boolean carriage = false;
+    byte b;
+    while(pos < size)
+    {
+      buff.clear();
+      if(channel.read(buff, pos) == -1)
+        break;
+      buff.flip();
+      while(buff.hasRemaining())
+      {
+        b = buff.get();
+        if(carriage)
+          return b == AsciiFileReader.LINE_FEED ? pos + 1 : pos;
+        if(b == AsciiFileReader.LINE_FEED)
+          return pos + 1;
+        if(b == AsciiFileReader.CARRIAGE_RETURN)
+          carriage = true;
+        pos++;
+      }
+    }
+    return size;
+  }
+  /**
+   * Counts the lines in this range, the same way {@link AsciiFileReader#readLine()} would return them. That is,
+   * blank lines are not counted.
+   * @param file
+   * @return
+   * @throws IOException
+   */
+  public int countLines(File file) throws IOException
+  {
+    int count = 0, p, t, lim;
+    boolean inLine = false;
+    try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+    {
+      long pos = start, len;
+      while(pos < end)
+      {
+        len = Math.min(MemoryMappedChunkHandler.DEFAULT_MEM_MAP_SIZE, end - pos);
+        MappedByteBuffer buff = channel.map(MapMode.READ_ONLY, pos, len);
+        try 
+        {
+          p = 0;
+          lim = buff.limit();
+          while((t = ByteScanner.indexOfTerminator(buff, p, lim)) != -1)
+          {
+            if(inLine || t > p)
+              count++;
+            inLine = false;
+            p = t + 1;
+          }
+          if(p < lim)
+            inLine = true;
+        } finally {
+          MemoryMappedChunkHandler.unmap(buff);
+        }
+        pos += len;
+      }
+    }
+    return inLine ? count + 1 : count;
+  }
+  public long getStart() {
+    return start;
+  }
+  public long getEnd() {
+    return end;
+  }
+  public long getLength() {
+    return end - start;
+  }
+  @Override
+  public String toString() {
+    return "FileRange [start=" + start + ", end=" + end + "]";
+  }
+}
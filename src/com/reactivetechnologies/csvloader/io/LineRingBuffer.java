@@ -0,0 +1,311 @@
+/* ============================================================================
+*
+* FILE: LineRingBuffer.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.io;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import com.reactivetechnologies.csvloader.ConfigLoader;
+/**
+ * A bounded single producer, single consumer ring buffer for handing off lines from the fetch thread
+ * to the reader thread. Lines are passed in batches, one batch per slot, so that the producer and consumer
+ * synchronize once per batch instead of once per line. A batch is also handed off once its lines add up to the
+ * slot byte limit, so that a ring of N slots holds about N chunks worth of lines, whatever the line length. 
+ * A partial batch is handed off on {@link #flush()}.
+ * <p><b>NOTE:</b> This class is safe for exactly one producer thread and one consumer thread.
+ */
+class LineRingBuffer {
+
+  private static final Logger log = Logger.getLogger(LineRingBuffer.class.getSimpleName());
+
+  /**
+   * How a thread waits for the other end, when the ring is full (producer) or empty (consumer).
+   */
+  public static enum WaitStrategy
+  {
+    /**
+     * Busy spin. Lowest latency, but keeps a core busy.
+     */
+    SPIN,
+    /**
+     * Yield the processor between checks.
+     */
+    YIELD,
+    /**
+     * Spin a little, then park until the other end hands off a batch or frees a slot.
+     */
+    PARK
+  }
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+  private static final int PARK_SPINS = 100;
+  
+  private final byte[][][] slots;
+  /**
+   * End offset of each line in the source, parallel to the slots.
+   */
+  private final long[][] ends;
+  private final int[] sizes;
+  /**
+   * Whether all lines of a slot are known to be ASCII, parallel to the slots.
+   */
+  private final boolean[] ascii;
+  private final int mask;
+  private final int batchSize;
+  private final int slotBytes;
+  private final WaitStrategy waitStrategy;
+  /**
+   * Sequence of the next slot to be consumed, and next slot to be published.
+   */
+  private final AtomicLong head = new AtomicLong(), tail = new AtomicLong();
+  /**
+   * The producer or consumer thread parked, to be unparked by the other end. 
+   */
+  private volatile Thread parkedProducer, parkedConsumer;
+  //producer state
+  private int putIdx, putBytes;
+  private boolean putAscii = true;
+  private long putSeq;
+  //consumer state
+  private byte[][] takeBatch;
+  private long[] takeEnds;
+  private int takeIdx, takeSize;
+  private boolean takeAscii;
+  private long lastEnd = -1;
+  /**
+   * 
+   * @param capacity number of slots, rounded up to a power of 2
+   * @param batchSize maximum number of lines per slot
+   * @param slotBytes number of line bytes after which a slot is published, even if not full
+   * @param waitStrategy
+   */
+  LineRingBuffer(int capacity, int batchSize, int slotBytes, WaitStrategy waitStrategy) {
+    if(capacity <= 0 || batchSize <= 0 || slotBytes <= 0)
+      throw new IllegalArgumentException("Capacity, batch size and slot bytes should be greater than 0");
+    int slotCount = Integer.highestOneBit(capacity);
+    if(slotCount < capacity)
+      slotCount <<= 1;
+    slots = new byte[slotCount][batchSize][];
+    ends = new long[slotCount][batchSize];
+    sizes = new int[slotCount];
+    ascii = new boolean[slotCount];
+    mask = slotCount - 1;
+    this.batchSize = batchSize;
+    this.slotBytes = slotBytes;
+    this.waitStrategy = waitStrategy;
+  }
+  /**
+   * New instance configured from system properties. The read ahead is counted in chunks, so each slot
+   * is limited to a chunk worth of line bytes, and the ring buffers no more than the read ahead budget.
+   * @param readAhead default capacity, if not set explicitly
+   * @param chunkSize slot byte limit
+   * @return
+   * @see ReadOptions#getReadAhead()
+   * @see ConfigLoader#SYS_PROP_RING_CAPACITY
+   * @see ConfigLoader#SYS_PROP_RING_BATCH
+   * @see ConfigLoader#SYS_PROP_RING_WAIT
+   */
+  static LineRingBuffer fromConfig(int readAhead, int chunkSize)
+  {
+    return new LineRingBuffer(Integer.getInteger(ConfigLoader.SYS_PROP_RING_CAPACITY, readAhead),
+        Integer.getInteger(ConfigLoader.SYS_PROP_RING_BATCH, DEFAULT_BATCH_SIZE), chunkSize,
+        waitStrategy(System.getProperty(ConfigLoader.SYS_PROP_RING_WAIT, WaitStrategy.PARK.name())));
+  }
+  private static WaitStrategy waitStrategy(String name)
+  {
+    try {
+      return WaitStrategy.valueOf(name.trim().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      log.warning("Ignoring invalid "+ConfigLoader.SYS_PROP_RING_WAIT+" ("+name+"). Using "+WaitStrategy.PARK);
+      return WaitStrategy.PARK;
+    }
+  }
+  
+  /**
+   * Waits once for the other end.
+   * @param attempt
+   * @return true if the thread is to park, after rechecking
+   * @throws InterruptedException
+   */
+  private boolean await(int attempt) throws InterruptedException
+  {
+    if(Thread.interrupted())
+      throw new InterruptedException();
+    switch(waitStrategy)
+    {
+      case SPIN:
+        return false;
+      case YIELD:
+        Thread.yield();
+        return false;
+      default:
+        //spin a little before parking
+        return attempt > PARK_SPINS;
+    }
+  }
+  /**
+   * Moves a sequence ahead, unparking the other end if parked. With parking, the sequence is set with a full fence,
+   * so that a thread announcing itself as parked either sees the new sequence, or is seen here.
+   * @param seq
+   * @param value
+   */
+  private void advance(AtomicLong seq, long value)
+  {
+    if(waitStrategy != WaitStrategy.PARK)
+    {
+      seq.lazySet(value);
+      return;
+    }
+    seq.set(value);
+    Thread parked = seq == tail ? parkedConsumer : parkedProducer;
+    if(parked != null)
+      LockSupport.unpark(parked);
+  }
+  /**
+   * Adds a line to the batch being filled, publishing the batch if it is full, or its lines have reached the slot byte limit. Waits if there is no free slot.
+   * @param line
+   * @throws InterruptedException
+   */
+  void put(byte[] line) throws InterruptedException
+  {
+    put(line, -1);
+  }
+  /**
+   * Adds a line along with its end offset in the source.
+   * @param line
+   * @param end offset just past the line terminator, or -1 if not known
+   * @throws InterruptedException
+   * @see #lastEnd()
+   */
+  void put(byte[] line, long end) throws InterruptedException
+  {
+    put(line, end, false);
+  }
+  /**
+   * Adds a line along with its end offset in the source, and whether it is known to be ASCII. A batch is
+   * marked ASCII if all its lines are.
+   * @param line
+   * @param end offset just past the line terminator, or -1 if not known
+   * @param ascii
+   * @throws InterruptedException
+   * @see #isAscii()
+   */
+  void put(byte[] line, long end, boolean ascii) throws InterruptedException
+  {
+    if(putIdx == 0)
+    {
+      int attempt = 0;
+      while(putSeq - head.get() > mask)
+      {
+        if(await(attempt++))
+        {
+          parkedProducer = Thread.currentThread();
+          if(putSeq - head.get() > mask)
+            LockSupport.park(this);
+          parkedProducer = null;
+        }
+      }
+    }
+    ends[(int) (putSeq & mask)][putIdx] = end;
+    slots[(int) (putSeq & mask)][putIdx++] = line;
+    putBytes += line.length;
+    putAscii &= ascii;
+    if(putIdx == batchSize || putBytes >= slotBytes)
+      publish();
+  }
+  /**
+   * Publishes the batch being filled, if not empty.
+   */
+  void flush()
+  {
+    if(putIdx > 0)
+      publish();
+  }
+  private void publish()
+  {
+    sizes[(int) (putSeq & mask)] = putIdx;
+    ascii[(int) (putSeq & mask)] = putAscii;
+    putIdx = 0;
+    putBytes = 0;
+    putAscii = true;
+    advance(tail, ++putSeq);
+  }
+  /**
+   * Takes the next line, waiting if none is available.
+   * @return
+   * @throws InterruptedException
+   */
+  byte[] take() throws InterruptedException
+  {
+    if(takeBatch == null)
+    {
+      long seq = head.get();
+      int attempt = 0;
+      while(tail.get() == seq)
+      {
+        if(await(attempt++))
+        {
+          parkedConsumer = Thread.currentThread();
+          if(tail.get() == seq)
+            LockSupport.park(this);
+          parkedConsumer = null;
+        }
+      }
+      
+      takeBatch = slots[(int) (seq & mask)];
+      takeEnds = ends[(int) (seq & mask)];
+      takeSize = sizes[(int) (seq & mask)];
+      takeAscii = ascii[(int) (seq & mask)];
+      takeIdx = 0;
+    }
+    byte[] line = takeBatch[takeIdx];
+    lastEnd = takeEnds[takeIdx];
+    takeBatch[takeIdx++] = null;
+    if(takeIdx == takeSize)
+    {
+      takeBatch = null;
+      advance(head, head.get() + 1);
+    }
+    return line;
+  }
+  /**
+   * End offset of the last line taken, as given on put.
+   * @return
+   */
+  long lastEnd() {
+    return lastEnd;
+  }
+  /**
+   * Whether the last line taken is known to be ASCII, as its batch was put with ASCII lines only.
+   * @return
+   */
+  boolean isAscii() {
+    return takeAscii;
+  }
+}
@@ -0,0 +1,152 @@
+/* ============================================================================
+*
+* FILE: MappedLineReader.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+/**
+ * A memory mapped reader that scans the mapped region in place, without copying the bytes of each line
+ * into a new array. Lines are returned as a reusable {@linkplain ByteSequence} view over the mapped region
+ * by {@link #readSequence()}, or decoded directly from the region by {@link #readLine()}. A line that crosses
+ * the mapped region is handled by re-mapping from the start of that line. 
+ * <p>Unlike its super class, the scanning is performed on the reader thread, since the views cannot be handed 
+ * off to another thread. This class is not thread safe.
+ */
+public class MappedLineReader extends AsciiFileReader {
+
+  private final MemoryMappedChunkHandler handler;
+  private final ByteSequence line = new ByteSequence();
+  private MappedByteBuffer region;
+  private ByteBuffer view;
+  /**
+   * File offset of the mapped region, and scan position within the region.
+   */
+  private long regionOffset;
+  private int pos;
+  private long lineOffset = -1, lineEnd = -1;
+  /**
+   * New reader instance over the whole file.
+   * @param file
+   * @throws IOException
+   */
+  public MappedLineReader(File file) throws IOException {
+    this(file, new FileRange(0, file.length()));
+  }
+  /**
+   * New reader instance over a byte range of the file. The range boundaries should be aligned
+   * on line terminators.
+   * @param file
+   * @param range
+   * @throws IOException
+   * @see FileRange#split(File, int)
+   */
+  public MappedLineReader(File file, FileRange range) throws IOException {
+    super();
+    ReadOptions options = ReadOptions.fromConfig(file);
+    //follow mode is not supported for in place reading
+    options.setFollowIdle(0);
+    handler = new MemoryMappedChunkHandler(file, options, range.getStart(), range.getEnd());
+    map(range.getStart(), false);
+  }
+  
+  private void map(long offset, boolean grow) throws IOException
+  {
+    region = handler.mapFrom(offset, grow);
+    view = region.duplicate();
+    regionOffset = offset;
+    pos = 0;
+  }
+  /**
+   * Reads the next line as a view over the mapped region. The returned instance is reused, and is valid
+   * only until the next read. Blank lines are skipped, same as {@link #readLine()}.
+   * @return the line, not including any line-termination characters, or null if the end of file has been reached
+   * @throws IOException
+   */
+  public ByteSequence readSequence() throws IOException
+  {
+    int limit, i;
+    while(true)
+    {
+      limit = region.limit();
+      i = ByteScanner.indexOfTerminator(region, pos, limit);
+      if(i != -1)
+      {
+        if(i == pos)
+        {
+          //blank line, or the line feed following a carriage return
+          pos++;
+          continue;
+        }
+        return nextLine(i);
+      }
+      if(regionOffset + limit == handler.getLimit())
+      {
+        //last line without a terminator
+        return pos < limit ? nextLine(limit) : null;
+      }
+      //line crosses the region. map again from the start of this line
+      map(regionOffset + pos, pos == 0);
+    }
+  }
+  
+  private ByteSequence nextLine(int end)
+  {
+    line.set(view, pos, end - pos);
+    lineOffset = regionOffset + pos;
+    lineEnd = regionOffset + Math.min(end + 1, region.limit());
+    pos = end + 1;
+    return line;
+  }
+  /**
+   * File offset of the last line read, or -1 if no line was read.
+   * @return
+   */
+  public long getLineOffset() {
+    return lineOffset;
+  }
+  @Override
+  public long getLineEnd() {
+    return lineEnd;
+  }
+  /**
+   * Reads a line of text, decoded directly from the mapped region.
+   */
+  @Override
+  public String readLine() throws IOException {
+    ByteSequence seq = readSequence();
+    return seq != null ? seq.toString() : null;
+  }
+  
+  @Override
+  public void close() throws IOException {
+    handler.close();
+  }
+}
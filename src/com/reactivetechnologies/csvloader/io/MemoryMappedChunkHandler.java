@@ -31,6 +31,7 @@ package com.reactivetechnologies.csvloader.io;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
@@ -76,25 +77,173 @@ class MemoryMappedChunkHandler extends AbstractFileChunkHandler implements Close
    * @throws IOException
    */
   public MemoryMappedChunkHandler(File f, int chunkSize) throws IOException {
+    this(f, chunkSize, 0, f.length());
+  }
+  /**
+   * Read mode over a byte range of the file. The range boundaries are expected to be
+   * aligned on line terminators.
+   * @param f
+   * @param chunkSize
+   * @param start start offset (inclusive)
+   * @param end end offset (exclusive)
+   * @throws IOException
+   * @see FileRange
+   */
+  public MemoryMappedChunkHandler(File f, int chunkSize, long start, long end) throws IOException {
+    this(f, chunkOptions(chunkSize), start, end);
+  }
+  private static ReadOptions chunkOptions(int chunkSize)
+  {
+    ReadOptions options = new ReadOptions();
+    options.setChunkSize(chunkSize);
+    return options;
+  }
+  /**
+   * Read mode over a byte range of the file, with the given chunk and mapped region size. The range 
+   * boundaries are expected to be aligned on line terminators.
+   * @param f
+   * @param options
+   * @param start start offset (inclusive)
+   * @param end end offset (exclusive)
+   * @throws IOException
+   */
+  public MemoryMappedChunkHandler(File f, ReadOptions options, long start, long end) throws IOException {
     super(f);
+    if(start < 0 || start > end || end > fileSize)
+      throw new IOException("Invalid range ["+start+", "+end+"] for file of size "+fileSize);
+    
     iStream = FileChannel.open(file.toPath(), StandardOpenOption.READ);
-    readSize = chunkSize;
-    chunks = fileSize % readSize == 0 ? (int) ((fileSize / readSize)) : (int) ((fileSize / readSize) + 1);
-    mapSize = DEFAULT_MEM_MAP_SIZE < getFileSize() ? DEFAULT_MEM_MAP_SIZE : getFileSize();
+    readSize = options.getChunkSize();
+    position = start;
+    limit = end;
+    followIdle = options.getFollowIdle();
+    if(followIdle > 0)
+    {
+      //the last line may be partially written yet
+      limit = lastLineEnd(position, limit);
+      mapSize = options.getMapSize();
+      chunks = 0;
+    }
+    else
+    {
+      long rangeSize = limit - position;
+      chunks = rangeSize % readSize == 0 ? (int) ((rangeSize / readSize)) : (int) ((rangeSize / readSize) + 1);
+      mapSize = options.getMapSize() < rangeSize ? options.getMapSize() : rangeSize;
+    }
     allocate();
+    chunkPool = new FileChunkPool(this, readSize, CHUNK_POOL_SIZE);
     debugInitialParams();
-    log.info("Reading source file of ["+fileSize+"] bytes. Expected chunks to read "+chunks+","
+    if(followIdle > 0)
+      log.info("Following source file of ["+fileSize+"] bytes, from offset "+start+", with chunk size "+readSize
+          +" and idle timeout "+followIdle+" ms");
+    else
+      log.info("Reading source file of ["+fileSize+"] bytes, range ["+start+", "+end+"]. Expected chunks to read "+chunks+","
         + " with chunk size "+readSize+" and mapped region size: "+mapSize);
   }
   private long mapSize;
+  private FileChunkPool chunkPool;
   protected int chunks;
   
+  static final long FOLLOW_POLL_MILLIS = 200;
+  private long followIdle;
+  private boolean followEnded;
+  /**
+   * The offset past the last line terminator in the given range, or the start of the range if there is none. A carriage 
+   * return at the very end is not considered, since a line feed may follow.
+   * @param from
+   * @param to
+   * @return
+   * @throws IOException
+   */
+  private long lastLineEnd(long from, long to) throws IOException
+  {
+    ByteBuffer buff = ByteBuffer.allocate(8192);
+    long end = to;
+    while(end > from)
+    {
+      long begin = Math.max(from, end - buff.capacity());
+      buff.clear();
+      buff.limit((int) (end - begin));
+      while(buff.hasRemaining() && iStream.read(buff, begin + buff.position()) != -1)
+        ;
+      for(int i = buff.position() - 1; i >= 0; i--)
+      {
+        byte b = buff.get(i);
+        if(b == AsciiFileReader.LINE_FEED || (b == AsciiFileReader.CARRIAGE_RETURN && begin + i < to - 1))
+          return begin + i + 1;
+      }
+      end = begin;
+    }
+    return from;
+  }
+  /**
+   * In follow mode, waits for complete lines to be appended to the file, and extends the limit past them. Once the file has not
+   * grown for the idle timeout, the limit is extended to the end of file, so that any unterminated last line is read as well.
+   * @return true if there is more to read
+   * @throws IOException
+   */
+  private boolean awaitAppend() throws IOException
+  {
+    if(followIdle <= 0 || followEnded)
+      return false;
+    
+    long lastSize = iStream.size();
+    long idleSince = System.currentTimeMillis();
+    while(true)
+    {
+      long size = iStream.size();
+      if(size < limit)
+      {
+        log.warning("Source file truncated to ["+size+"] bytes, while following at offset "+limit+". Stopping");
+        followEnded = true;
+        return false;
+      }
+      if(size != lastSize)
+      {
+        lastSize = size;
+        idleSince = System.currentTimeMillis();
+      }
+      long end = lastLineEnd(limit, size);
+      if(end > limit)
+      {
+        limit = end;
+        fileSize = size;
+        return true;
+      }
+      if(System.currentTimeMillis() - idleSince >= followIdle)
+      {
+        log.info("Source file idle for "+followIdle+" ms. Stopping follow at ["+size+"] bytes");
+        followEnded = true;
+        if(size > limit)
+        {
+          limit = size;
+          fileSize = size;
+          return true;
+        }
+        return false;
+      }
+      try {
+        Thread.sleep(FOLLOW_POLL_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+    }
+  }
+  /**
+   * Whether reading in follow mode, in which case {@link #readNext()} may block for appended lines.
+   * @return
+   */
+  boolean isFollow() {
+    return followIdle > 0;
+  }
+  
   private void allocate() throws IOException
   {
     if(mapBuff != null){
       unmap(mapBuff);
     }
-    long remaining = fileSize - position;
+    long remaining = limit - position;
     mapBuff = iStream.map(MapMode.READ_ONLY, position, remaining > mapSize ? mapSize : remaining);
   }
   @Override
@@ -118,25 +267,53 @@ class MemoryMappedChunkHandler extends AbstractFileChunkHandler implements Close
         
     if(!mapBuff.hasRemaining())
     {
-      if(position == getFileSize())
+      if(position == limit && !awaitAppend())
         return null;
       allocate();
       
     }
-    byte[] read = new byte[mapBuff.remaining() > readSize ? readSize : mapBuff.remaining()];
-    mapBuff.get(read);
-    position += read.length;
+    int read = mapBuff.remaining() > readSize ? readSize : mapBuff.remaining();
+    FileChunk chunk = chunkPool.acquire();
+    mapBuff.get(chunk.getChunk(), 0, read);
+    chunk.setLength(read);
+    position += read;
     
-    FileChunk chunk = new FileChunk(fileName, fileSize, creationTime, lastAccessTime, lastModifiedTime);
-    chunk.setChunk(read);
     chunk.setOffset(idx++);
     chunk.setSize(chunks);
     
     return chunk;
     
   }
+  /**
+   * Maps the region starting at the given file offset, for reading the bytes in place. Any previously
+   * mapped region is unmapped, so buffers returned earlier must not be accessed anymore. This method
+   * should not be mixed with {@link #readNext()} on the same instance.
+   * @param offset file offset to map from
+   * @param grow whether to double the mapped region size, for when a single line does not fit in a region
+   * @return the mapped region
+   * @throws IOException
+   */
+  MappedByteBuffer mapFrom(long offset, boolean grow) throws IOException
+  {
+    if(grow)
+      mapSize = Math.min(mapSize * 2, Integer.MAX_VALUE);
+    position = offset;
+    allocate();
+    return mapBuff;
+  }
+  /**
+   * End offset (exclusive) of the region being read.
+   * @return
+   */
+  long getLimit() {
+    return limit;
+  }
   protected MappedByteBuffer mapBuff;
   private long position = 0;
+  /**
+   * End offset (exclusive) of the region to read.
+   */
+  private long limit;
   /**
    * 
    * @param chunk
@@ -181,8 +358,8 @@ class MemoryMappedChunkHandler extends AbstractFileChunkHandler implements Close
       mapBuff = oStream.map(MapMode.READ_WRITE, position, chunk.getFileSize());
     }
     
-    mapBuff.put(chunk.getChunk());
-    fileSize += chunk.getChunk().length;
+    mapBuff.put(chunk.getChunk(), 0, chunk.getLength());
+    fileSize += chunk.getLength();
     
     if(fileSize > chunk.getFileSize())
       throw new IOException("File size ["+fileSize+"] greater than expected size ["+chunk.getFileSize()+"]");
@@ -0,0 +1,178 @@
+/* ============================================================================
+*
+* FILE: ReadOptions.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.io;
+
+import java.io.File;
+
+import com.reactivetechnologies.csvloader.ConfigLoader;
+/**
+ * Tuning parameters for the file readers. The values are either set explicitly via system properties, or
+ * picked by an auto tuning mode from the file size and the available memory. Explicit settings override
+ * auto tuned values.
+ * @see ConfigLoader#SYS_PROP_IO_AUTOTUNE
+ */
+public class ReadOptions {
+
+  public static final int DEFAULT_CHUNK_SIZE = 8192;
+  public static final int DEFAULT_READ_AHEAD = 16;
+  public static final long DEFAULT_FOLLOW_IDLE = 60000;
+  
+  static final int MIN_TUNED_CHUNK_SIZE = 64 * 1024;
+  static final int MAX_TUNED_CHUNK_SIZE = 4 * 1024 * 1024;
+  static final long MAX_TUNED_MAP_SIZE = 256 * 1024 * 1024;
+  static final int MAX_TUNED_READ_AHEAD = 64;
+  
+  private int chunkSize = DEFAULT_CHUNK_SIZE;
+  private long mapSize = MemoryMappedChunkHandler.DEFAULT_MEM_MAP_SIZE;
+  private boolean direct;
+  private int readAhead = DEFAULT_READ_AHEAD;
+  private long followIdle = 0;
+  
+  public ReadOptions() {
+    super();
+  }
+  /**
+   * Options for reading the given file, as configured in system properties.
+   * @param file
+   * @return
+   */
+  public static ReadOptions fromConfig(File file)
+  {
+    ReadOptions options = new ReadOptions();
+    if(System.getProperty(ConfigLoader.SYS_PROP_IO_AUTOTUNE) != null)
+    {
+      Runtime rt = Runtime.getRuntime();
+      options.autoTune(file.length(), rt.maxMemory() - (rt.totalMemory() - rt.freeMemory()));
+    }
+    options.setChunkSize(Integer.getInteger(ConfigLoader.SYS_PROP_CHUNK_SIZE, options.getChunkSize()));
+    options.setMapSize(Long.getLong(ConfigLoader.SYS_PROP_MMAP_SIZE, options.getMapSize()));
+    options.setReadAhead(Integer.getInteger(ConfigLoader.SYS_PROP_READ_AHEAD, options.getReadAhead()));
+    if(System.getProperty(ConfigLoader.SYS_PROP_BUFF_DIRECT) != null)
+      options.setDirect(Boolean.getBoolean(ConfigLoader.SYS_PROP_BUFF_DIRECT));
+    if(System.getProperty(ConfigLoader.SYS_PROP_FOLLOW) != null)
+      options.setFollowIdle(Long.getLong(ConfigLoader.SYS_PROP_FOLLOW, DEFAULT_FOLLOW_IDLE));
+    
+    return options;
+  }
+  /**
+   * Pick values for the given file size and available heap memory. Small files keep the default chunk size. 
+   * Larger files get a chunk of about 1/4096 of the file (64 KB to 4 MB), read into direct buffers, so that 
+   * fast devices are kept busy. The read ahead is bounded so that in flight chunks take no more than 1/16 of
+   * the available memory, and the mapped region is bounded to 256 MB.
+   * @param fileSize
+   * @param availableMemory
+   */
+  void autoTune(long fileSize, long availableMemory)
+  {
+    if(fileSize <= 1024 * 1024)
+    {
+      chunkSize = DEFAULT_CHUNK_SIZE;
+      direct = false;
+    }
+    else
+    {
+      long chunk = Long.highestOneBit(fileSize / 4096);
+      chunkSize = (int) Math.max(MIN_TUNED_CHUNK_SIZE, Math.min(MAX_TUNED_CHUNK_SIZE, chunk));
+      direct = true;
+    }
+    long aheadBudget = availableMemory / 16 / chunkSize;
+    readAhead = (int) Math.max(2, Math.min(MAX_TUNED_READ_AHEAD, aheadBudget));
+    mapSize = Math.max(chunkSize, Math.min(MAX_TUNED_MAP_SIZE, fileSize));
+  }
+  /**
+   * Size of each chunk read from file.
+   * @return
+   */
+  public int getChunkSize() {
+    return chunkSize;
+  }
+  public void setChunkSize(int chunkSize) {
+    if(chunkSize <= 0)
+      throw new IllegalArgumentException("Chunk size should be greater than 0");
+    this.chunkSize = chunkSize;
+  }
+  /**
+   * Size of the memory mapped region (window), when reading via mapped byte buffers.
+   * @return
+   */
+  public long getMapSize() {
+    return mapSize;
+  }
+  public void setMapSize(long mapSize) {
+    if(mapSize <= 0 || mapSize > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("Map size should be greater than 0 and not more than "+Integer.MAX_VALUE);
+    this.mapSize = mapSize;
+  }
+  /**
+   * Whether to read into direct buffers, rather than heap buffers.
+   * @return
+   */
+  public boolean isDirect() {
+    return direct;
+  }
+  public void setDirect(boolean direct) {
+    this.direct = direct;
+  }
+  /**
+   * Number of reads the fetching side may run ahead of the consumer. For the line readers, this is the 
+   * number of line batches that can be buffered between the fetch thread and the reader thread, where each
+   * batch holds up to a chunk worth of lines.
+   * @return
+   */
+  public int getReadAhead() {
+    return readAhead;
+  }
+  public void setReadAhead(int readAhead) {
+    if(readAhead <= 0)
+      throw new IllegalArgumentException("Read ahead should be greater than 0");
+    this.readAhead = readAhead;
+  }
+  /**
+   * Follow mode idle timeout in millis, or 0 if not following. In follow mode, the file is expected to be
+   * appended to while being read. Reading continues with the appended lines, and ends once the file has not grown for 
+   * the idle timeout.
+   * @return
+   */
+  public long getFollowIdle() {
+    return followIdle;
+  }
+  public void setFollowIdle(long followIdle) {
+    if(followIdle < 0)
+      throw new IllegalArgumentException("Follow idle timeout should not be negative");
+    this.followIdle = followIdle;
+  }
+  public boolean isFollow() {
+    return followIdle > 0;
+  }
+  @Override
+  public String toString() {
+    return "ReadOptions [chunkSize=" + chunkSize + ", mapSize=" + mapSize + ", direct=" + direct + ", readAhead="
+        + readAhead + ", followIdle=" + followIdle + "]";
+  }
+}
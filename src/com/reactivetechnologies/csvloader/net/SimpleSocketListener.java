@@ -47,6 +47,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.reactivetechnologies.csvloader.io.AsciiFileReader;
+import com.reactivetechnologies.csvloader.io.ByteScanner;
 
 /**
  * A naive socket server that accepts a single client connection, and expects UTF8 encoded
@@ -215,6 +216,9 @@ class SimpleSocketListener implements Runnable{
    */
   private ByteBuffer convertToUtf8Bytes(ByteBuffer read) throws CharacterCodingException
   {
+    //ASCII is valid UTF-8 as is
+    if(ByteScanner.isAscii(read, read.position(), read.limit()))
+      return read;
     try 
     {
       return utf8Encoder.encode(utf8Decoder.decode(read));
@@ -57,6 +57,7 @@ class UTF8StreamReader extends AsciiFileReader {
       while (!isEOS(available)) {
         log.fine("available found ..."+available.length);
         splitBytes(available);
+        flush();
         available = in.take();
       }
     } catch (InterruptedException e) {
@@ -0,0 +1,126 @@
+/* ============================================================================
+*
+* FILE: CommitIntervalCheck.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.test;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.reactivetechnologies.csvloader.ConfigLoader;
+import com.reactivetechnologies.csvloader.db.DatabaseSession;
+/**
+ * Loads records into a {@linkplain JdbcStandIn} with a session set up as a writer does, and counts the commits 
+ * when committing every batch, by record count (<code>LOAD_COMMIT_SIZE</code>), and by time (<code>LOAD_COMMIT_INTERVAL</code>).
+ * The load count should match the rows committed in each case. With a bad record, only the batch it is in should
+ * be lost, with or without <code>COMMIT_ON_BATCH_FAIL</code>, and also if the failure aborts the transaction.
+ * <pre>
+ * java com.reactivetechnologies.csvloader.test.CommitIntervalCheck
+ * </pre>
+ */
+public class CommitIntervalCheck {
+
+  private static final String TABLE = "standin_load";
+  private static final int RECORDS = 5025, BATCH_SIZE = 50;
+  private static final String BAD_VALUE = "name2510";
+  
+  private static JdbcStandIn newDb()
+  {
+    return new JdbcStandIn(TABLE, new String[]{"id", "name"}, new int[]{Types.INTEGER, Types.VARCHAR}, new int[]{10, 20});
+  }
+  /**
+   * 
+   * @param name
+   * @param db
+   * @param commitSize
+   * @param commitInterval
+   * @param commitOnFail
+   * @param maxLost records that may be lost, for the batch that fails
+   * @throws SQLException
+   */
+  private static void run(String name, JdbcStandIn db, int commitSize, long commitInterval, boolean commitOnFail, int maxLost) throws SQLException
+  {
+    ConfigLoader.getConfig().setProperty(ConfigLoader.LOAD_COMMIT_SIZE, String.valueOf(commitSize));
+    ConfigLoader.getConfig().setProperty(ConfigLoader.LOAD_COMMIT_INTERVAL, String.valueOf(commitInterval));
+    ConfigLoader.getConfig().setProperty(ConfigLoader.COMMIT_ON_BATCH_FAIL, String.valueOf(commitOnFail));
+    
+    AtomicLong counter = new AtomicLong();
+    DatabaseSession session = new DatabaseSession(counter, db.getDataSource());
+    session.setBatchSize(ConfigLoader.getBatchSize());
+    session.setCommitInterval(ConfigLoader.getCommitSize(), ConfigLoader.getCommitInterval());
+    session.prepareStatement("INSERT INTO "+TABLE+" VALUES (?,?)");
+    try
+    {
+      for(int i = 1; i <= RECORDS; i++)
+        session.addBatch(new String[]{String.valueOf(i), "name"+i}, i);
+      //as on closing a writer
+      session.executeBatch();
+      session.commit();
+    }
+    finally
+    {
+      session.close();
+    }
+    
+    int rows = db.getRows().size();
+    System.out.println(name+": records="+RECORDS+", batches="+db.getBatches()+", commits="+db.getCommits()+", rollbacks="+db.getRollbacks()
+        +", savepoint rollbacks="+db.getSavepointRollbacks()+", connections="+db.getConnections()+", rows="+rows+", counter="+counter.get());
+    if(counter.get() != rows)
+      throw new IllegalStateException(name+": load count "+counter.get()+" does not match the "+rows+" row(s) committed");
+    if(RECORDS - rows > maxLost)
+      throw new IllegalStateException(name+": "+(RECORDS - rows)+" record(s) lost, expected no more than "+maxLost);
+  }
+  
+  public static void main(String[] args) throws Exception {
+    Logger.getLogger("").setLevel(Level.OFF);
+    JdbcStandIn.configure("PGSQL", TABLE, BATCH_SIZE);
+    
+    run("Every batch", newDb(), 0, 0, true, 0);
+    run("Commit size 1000", newDb(), 1000, 0, true, 0);
+    JdbcStandIn db = newDb();
+    db.setExecuteDelay(2);
+    run("Commit interval 30 ms", db, 0, 30, true, 0);
+    
+    db = newDb();
+    db.setFailValue(BAD_VALUE);
+    run("Every batch, bad record", db, 0, 0, true, BATCH_SIZE);
+    db = newDb();
+    db.setFailValue(BAD_VALUE);
+    run("Commit size 1000, bad record, no commit on fail", db, 1000, 0, false, BATCH_SIZE);
+    db = newDb();
+    db.setFailValue(BAD_VALUE);
+    run("Commit size 1000, bad record, commit on fail", db, 1000, 0, true, BATCH_SIZE);
+    db = newDb();
+    db.setFailValue(BAD_VALUE);
+    db.setAbortOnFail(true);
+    run("Commit size 1000, bad record aborting the transaction", db, 1000, 0, true, BATCH_SIZE);
+  }
+
+}
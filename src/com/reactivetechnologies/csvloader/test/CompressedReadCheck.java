@@ -0,0 +1,178 @@
+/* ============================================================================
+*
+* FILE: CompressedReadCheck.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import com.reactivetechnologies.csvloader.ConfigLoader;
+import com.reactivetechnologies.csvloader.io.AsciiFileReader;
+/**
+ * Reads a truncated gzip file, and a BGZF file with a corrupt block, with the streaming and the parallel block
+ * decompression. Reading should fail with an IOException once the lines before the damage are read, rather than
+ * block the reader, and no partial line should be returned.
+ * <pre>
+ * java com.reactivetechnologies.csvloader.test.CompressedReadCheck [lines]
+ * </pre>
+ */
+public class CompressedReadCheck {
+
+  private static final long TIMEOUT_MILLIS = 10000;
+  
+  private static byte[] lines(int count)
+  {
+    StringBuilder s = new StringBuilder();
+    for(int i = 1; i <= count; i++)
+      s.append(i).append(",name").append(i).append(",2016-03-01\n");
+    return s.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+  
+  private static void writeGzip(File file, byte[] data) throws IOException
+  {
+    try(OutputStream out = new GZIPOutputStream(new FileOutputStream(file)))
+    {
+      out.write(data);
+    }
+  }
+  /**
+   * Writes the data as BGZF blocks, each a gzip member with the 'BC' subfield giving the block size.
+   */
+  private static void writeBgzf(File file, byte[] data, int blockData) throws IOException
+  {
+    try(OutputStream out = new FileOutputStream(file))
+    {
+      Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+      byte[] buf = new byte[blockData * 2 + 64];
+      for(int off = 0; off < data.length; off += blockData)
+      {
+        int len = Math.min(blockData, data.length - off);
+        deflater.reset();
+        deflater.setInput(data, off, len);
+        deflater.finish();
+        int clen = deflater.deflate(buf);
+        CRC32 crc = new CRC32();
+        crc.update(data, off, len);
+        
+        int blockSize = 18 + clen + 8;
+        ByteArrayOutputStream block = new ByteArrayOutputStream(blockSize);
+        block.write(new byte[]{0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0});
+        writeInt(block, blockSize - 1, 2);
+        block.write(buf, 0, clen);
+        writeInt(block, crc.getValue(), 4);
+        writeInt(block, len, 4);
+        block.writeTo(out);
+      }
+    }
+  }
+  private static void writeInt(OutputStream out, long value, int bytes) throws IOException
+  {
+    for(int i = 0; i < bytes; i++)
+      out.write((int) (value >>> (8 * i)) & 0xff);
+  }
+  /**
+   * Reads the file line by line in a separate thread, checking the lines are the expected ones in order. 
+   * @return lines read before the failure
+   */
+  private static int read(String name, final File file, int total) throws Exception
+  {
+    final int[] read = new int[1];
+    final AtomicReference<Exception> failure = new AtomicReference<>();
+    Thread reader = new Thread(name) {
+      @Override
+      public void run() {
+        try(AsciiFileReader in = new AsciiFileReader(file, false))
+        {
+          String line;
+          while((line = in.readLine()) != null)
+          {
+            if(!line.equals((read[0] + 1)+",name"+(read[0] + 1)+",2016-03-01"))
+              throw new IllegalStateException("Unexpected line after "+read[0]+" line(s): "+line);
+            read[0]++;
+          }
+        } catch (Exception e) {
+          failure.set(e);
+        }
+      }
+    };
+    reader.setDaemon(true);
+    reader.start();
+    reader.join(TIMEOUT_MILLIS);
+    if(reader.isAlive())
+      throw new IllegalStateException(name+": reader still blocked after "+TIMEOUT_MILLIS+" ms, with "+read[0]+" line(s) read");
+    Exception e = failure.get();
+    System.out.println(name+": read "+read[0]+" of "+total+" line(s), then "+e);
+    if(!(e instanceof IOException))
+      throw new IllegalStateException(name+": expected an IOException", e);
+    if(read[0] == 0 || read[0] >= total)
+      throw new IllegalStateException(name+": expected the lines before the damage to be read");
+    return read[0];
+  }
+  
+  public static void main(String[] args) throws Exception {
+    Logger.getLogger("").setLevel(Level.OFF);
+    int total = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    byte[] data = lines(total);
+    
+    File gz = File.createTempFile("truncated", ".csv.gz");
+    gz.deleteOnExit();
+    writeGzip(gz, data);
+    try(RandomAccessFile raf = new RandomAccessFile(gz, "rw"))
+    {
+      raf.setLength(raf.length() / 2);
+    }
+    read("Truncated gzip", gz, total);
+    
+    File bgzf = File.createTempFile("corrupt", ".csv.gz");
+    bgzf.deleteOnExit();
+    writeBgzf(bgzf, data, 60000);
+    try(RandomAccessFile raf = new RandomAccessFile(bgzf, "rw"))
+    {
+      //garble the middle of the file, inside the deflated data of a block
+      byte[] junk = new byte[64];
+      raf.seek(raf.length() / 2);
+      raf.write(junk);
+    }
+    System.setProperty(ConfigLoader.SYS_PROP_INFLATE_THREADS, "1");
+    read("Corrupt BGZF, streamed", bgzf, total);
+    System.setProperty(ConfigLoader.SYS_PROP_INFLATE_THREADS, "4");
+    read("Corrupt BGZF, parallel", bgzf, total);
+  }
+
+}
@@ -0,0 +1,161 @@
+/* ============================================================================
+*
+* FILE: CopyFormatCheck.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.sql.Types;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.reactivetechnologies.csvloader.db.DatabaseSession;
+/**
+ * Checks the text sent by a session with PostgreSQL <code>COPY</code> bulk load, against a {@linkplain JdbcStandIn} and a 
+ * stand-in <code>CopyManager</code> capturing the text. As the PostgreSQL driver is not on the classpath, the session 
+ * is given the bulk loader via reflection. Covers escaping of tab, backslash and line terminators, <code>\N</code>
+ * for NULL and invalid values, dates, and timestamps in the local time zone with the zone offset. The load count is 
+ * checked after commit.
+ * <pre>
+ * java [-Duser.timezone=..] com.reactivetechnologies.csvloader.test.CopyFormatCheck
+ * </pre>
+ */
+public class CopyFormatCheck {
+
+  private static final String TABLE = "standin_copy";
+  /**
+   * Stands in for <code>org.postgresql.copy.CopyManager</code>.
+   */
+  public static class CopyManager
+  {
+    private final List<String> copies = new ArrayList<>();
+    private final List<String> commands = new ArrayList<>();
+    public long copyIn(String sql, Reader from) throws IOException
+    {
+      StringBuilder text = new StringBuilder();
+      char[] buf = new char[1024];
+      int n;
+      while((n = from.read(buf)) != -1)
+        text.append(buf, 0, n);
+      commands.add(sql);
+      copies.add(text.toString());
+      long lines = 0;
+      for(int i = 0; i < text.length(); i++)
+      {
+        if(text.charAt(i) == '\n')
+          lines++;
+      }
+      return lines;
+    }
+  }
+  
+  private static DatabaseSession openSession(AtomicLong counter, JdbcStandIn db, CopyManager copyManager) throws Exception
+  {
+    DatabaseSession session = new DatabaseSession(counter, db.getDataSource());
+    session.prepareStatement("INSERT INTO "+TABLE+" VALUES (?,?,?,?)");
+    
+    Class<?> pgCopy = Class.forName("com.reactivetechnologies.csvloader.db.BulkLoader$PgCopy");
+    Constructor<?> ctor = pgCopy.getDeclaredConstructor(Object.class, Method.class, String.class);
+    ctor.setAccessible(true);
+    Method copyIn = CopyManager.class.getMethod("copyIn", String.class, Reader.class);
+    Object loader = ctor.newInstance(copyManager, copyIn, "COPY "+TABLE+"(id,name,born,seen) FROM STDIN");
+    Field bulkLoader = DatabaseSession.class.getDeclaredField("bulkLoader");
+    bulkLoader.setAccessible(true);
+    bulkLoader.set(session, loader);
+    return session;
+  }
+  /**
+   * A timestamp as expected in the text, in the local time zone with the offset as +hh:mm.
+   */
+  private static String timestamp(String value, String pattern) throws Exception
+  {
+    long millis = new SimpleDateFormat(pattern).parse(value).getTime();
+    int offset = TimeZone.getDefault().getOffset(millis) / 60000;
+    return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(millis) 
+        + String.format("%c%02d:%02d", offset < 0 ? '-' : '+', Math.abs(offset) / 60, Math.abs(offset) % 60);
+  }
+  
+  public static void main(String[] args) throws Exception {
+    Logger.getLogger("").setLevel(Level.SEVERE);
+    JdbcStandIn.configure("PGSQL", TABLE, 100);
+    
+    JdbcStandIn db = new JdbcStandIn(TABLE, new String[]{"id", "name", "born", "seen"}, 
+        new int[]{Types.INTEGER, Types.VARCHAR, Types.DATE, Types.TIMESTAMP}, new int[]{10, 12, 10, 30});
+    CopyManager copyManager = new CopyManager();
+    AtomicLong counter = new AtomicLong();
+    
+    String[][] records = {
+        {"1", "plain", "2016-03-01", "2016-03-01 10:20:30"},
+        {"2", "tab\there", "2016-07-15", "2016-07-15 23:59:59"},
+        {"3", "back\\slash", "1999-12-31", "2016-01-10 08:00:00+0530"},
+        {"4", "line\nbreak\r", "2016-03-01", "2016-07-01T00:00:00-0800"},
+        {"5", "\\N", "", ""},
+        {"", "", "not a date", "yesterday"},
+        {"x7", "longer than twelve", "2016-02-29", "2016-02-29 12:00"},
+    };
+    String expected = 
+        "1\tplain\t2016-03-01\t"+timestamp("2016-03-01 10:20:30", "yyyy-MM-dd HH:mm:ss")+"\n"
+      + "2\ttab\\there\t2016-07-15\t"+timestamp("2016-07-15 23:59:59", "yyyy-MM-dd HH:mm:ss")+"\n"
+      + "3\tback\\\\slash\t1999-12-31\t"+timestamp("2016-01-10 08:00:00+0530", "yyyy-MM-dd HH:mm:ssZ")+"\n"
+      + "4\tline\\nbreak\\r\t2016-03-01\t"+timestamp("2016-07-01T00:00:00-0800", "yyyy-MM-dd'T'HH:mm:ssZ")+"\n"
+      + "5\t\\\\N\t\\N\t\\N\n"
+      + "\\N\t\t\\N\t\\N\n"
+      + "\\N\tlonger than \t2016-02-29\t"+timestamp("2016-02-29 12:00", "yyyy-MM-dd HH:mm")+"\n";
+    
+    DatabaseSession session = openSession(counter, db, copyManager);
+    try
+    {
+      for(int i = 0; i < records.length; i++)
+        session.addBatch(records[i], i + 1);
+      session.executeBatch();
+      session.commit();
+    }
+    finally
+    {
+      session.close();
+    }
+    
+    String actual = copyManager.copies.size() == 1 ? copyManager.copies.get(0) : String.valueOf(copyManager.copies);
+    System.out.println(copyManager.commands);
+    System.out.print(actual);
+    System.out.println("time zone="+TimeZone.getDefault().getID()+", commits="+db.getCommits()+", counter="+counter.get());
+    if(!expected.equals(actual))
+      throw new IllegalStateException("Unexpected COPY text. Expected:\n"+expected);
+    if(counter.get() != records.length)
+      throw new IllegalStateException("Load count "+counter.get()+" does not match the "+records.length+" record(s) copied");
+  }
+
+}
@@ -0,0 +1,216 @@
+/* ============================================================================
+*
+* FILE: CsvRecordReaderBenchmark.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.reactivetechnologies.csvloader.ConfigLoader;
+import com.reactivetechnologies.csvloader.io.CsvRecordReader;
+/**
+ * Checks the {@linkplain CsvRecordReader} on quoting and record ends, with every chunk size up to the length of
+ * the input, so that each quote, escape and line break falls on a chunk boundary. Then compares it against 
+ * <code>readLine</code> and <code>split(sep, -1)</code> on plain rows.
+ * <pre>
+ * java com.reactivetechnologies.csvloader.test.CsvRecordReaderBenchmark [rows in thousands]
+ * </pre>
+ */
+public class CsvRecordReaderBenchmark {
+
+  private static File write(String text) throws IOException
+  {
+    File file = File.createTempFile("csvcheck", ".csv");
+    file.deleteOnExit();
+    try(OutputStream out = new FileOutputStream(file))
+    {
+      out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+    return file;
+  }
+  
+  private static List<String[]> readAll(File file, boolean memMappedIO) throws IOException
+  {
+    List<String[]> records = new ArrayList<>();
+    try(CsvRecordReader reader = new CsvRecordReader(file, (byte) ',', memMappedIO))
+    {
+      String[] values;
+      while((values = reader.readRecord()) != null)
+        records.add(values);
+    }
+    return records;
+  }
+  
+  private static void check(String name, String text, String[]... expected) throws IOException
+  {
+    File file = write(text);
+    for(int chunkSize = 1; chunkSize <= text.length() + 1; chunkSize++)
+    {
+      System.setProperty(ConfigLoader.SYS_PROP_CHUNK_SIZE, String.valueOf(chunkSize));
+      for(boolean mapped : new boolean[]{false, true})
+      {
+        List<String[]> records = readAll(file, mapped);
+        boolean match = records.size() == expected.length;
+        for(int i=0; match && i<expected.length; i++)
+          match = Arrays.equals(expected[i], records.get(i));
+        if(!match)
+        {
+          StringBuilder actual = new StringBuilder();
+          for(String[] r : records)
+            actual.append(Arrays.toString(r));
+          throw new IllegalStateException(name+": mismatch at chunk size "+chunkSize+(mapped ? " (mapped)" : "")
+              +" => "+actual);
+        }
+      }
+    }
+    System.clearProperty(ConfigLoader.SYS_PROP_CHUNK_SIZE);
+    System.out.println(name+": ok");
+  }
+  
+  private static String[] rec(String... values)
+  {
+    return values;
+  }
+  
+  private static void checks() throws IOException
+  {
+    check("quoted delimiter and escaped quote", "a,\"b,c\",\"d\"\"e\"\n\"\",\"\"\"\"\n", 
+        rec("a", "b,c", "d\"e"), rec("", "\""));
+    check("line breaks inside quotes", "\"x\r\ny\",z\r\n\"p\nq\",\"r\rs\"\r\n", 
+        rec("x\r\ny", "z"), rec("p\nq", "r\rs"));
+    check("quote split across chunks", "\"ab\"\"cd\",\"\"\"\",e\n1,\"2\"\n", 
+        rec("ab\"cd", "\"", "e"), rec("1", "2"));
+    check("trailing empty field", "a,b,\n,,\n", 
+        rec("a", "b", ""), rec("", "", ""));
+    check("unterminated last record", "1,2\n3,\"4\n5\"", 
+        rec("1", "2"), rec("3", "4\n5"));
+    check("unterminated last record, empty field", "1,2\n3,", 
+        rec("1", "2"), rec("3", ""));
+    check("CRLF records and blank lines", "a\r\n\r\nb,c\r\n\n", 
+        rec("a"), rec("b", "c"));
+  }
+  
+  private static File rows(int count, int columns) throws IOException
+  {
+    Random r = new Random(7);
+    File file = File.createTempFile("csvbench", ".csv");
+    file.deleteOnExit();
+    StringBuilder row = new StringBuilder();
+    try(OutputStream out = new FileOutputStream(file))
+    {
+      for(int i=0; i<count; i++)
+      {
+        row.setLength(0);
+        for(int c=0; c<columns; c++)
+        {
+          if(c > 0)
+            row.append(',');
+          if(c % 3 == 0)
+            row.append(r.nextInt(1000000));
+          else
+            row.append("value").append(r.nextInt(1000));
+        }
+        row.append('\n');
+        out.write(row.toString().getBytes(StandardCharsets.US_ASCII));
+      }
+    }
+    return file;
+  }
+  
+  private static void run(String name, File file, int rounds) throws IOException
+  {
+    long start, splitTime = 0, parseTime = 0, mappedTime = 0;
+    int records = 0;
+    for(int i=0; i<rounds; i++)
+    {
+      start = System.nanoTime();
+      int fields = 0;
+      records = 0;
+      try(BufferedReader br = new BufferedReader(new FileReader(file)))
+      {
+        String line;
+        while((line = br.readLine()) != null)
+        {
+          fields += line.split(",", -1).length;
+          records++;
+        }
+      }
+      splitTime += System.nanoTime() - start;
+      
+      start = System.nanoTime();
+      if(count(file, false) != fields)
+        throw new IllegalStateException("Field count mismatch on channel read");
+      parseTime += System.nanoTime() - start;
+      
+      start = System.nanoTime();
+      if(count(file, true) != fields)
+        throw new IllegalStateException("Field count mismatch on mapped read");
+      mappedTime += System.nanoTime() - start;
+    }
+    System.out.println(name+": "+records+" records/round. avg ms/round => readLine+split: "+(splitTime/rounds/1000000.0)
+        +", record reader: "+(parseTime/rounds/1000000.0)+", record reader (mapped): "+(mappedTime/rounds/1000000.0));
+  }
+  
+  private static int count(File file, boolean memMappedIO) throws IOException
+  {
+    int fields = 0;
+    try(CsvRecordReader reader = new CsvRecordReader(file, (byte) ',', memMappedIO))
+    {
+      String[] values;
+      while((values = reader.readRecord()) != null)
+        fields += values.length;
+    }
+    return fields;
+  }
+  
+  public static void main(String[] args) throws IOException {
+    //the chunk handlers log each file opened
+    Logger.getLogger("").setLevel(Level.WARNING);
+    checks();
+    
+    int count = (args.length > 0 ? Integer.parseInt(args[0]) : 500) * 1000;
+    File file = rows(count, 10);
+    
+    //warm up
+    run("warmup", file, 3);
+    
+    run("10 columns", file, 10);
+  }
+
+}
@@ -0,0 +1,393 @@
+/* ============================================================================
+*
+* FILE: JdbcStandIn.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import com.reactivetechnologies.csvloader.ConfigLoader;
+/**
+ * An in memory stand-in for a JDBC driver, to run the database writers without a database. It serves the metadata 
+ * of a single table, and keeps the rows inserted by prepared statements. Rows are visible once committed, and dropped 
+ * on rollback, or rollback to a savepoint taken before them. Commits, rollbacks, batch executions and connections are 
+ * counted. Only what the writers use is implemented, via dynamic proxies.
+ * <p><b>NOTE:</b> A statement is not thread safe, same as with a real driver.
+ */
+public class JdbcStandIn {
+
+  private final String table;
+  private final String[] names;
+  private final int[] types, sizes;
+  private final List<Object[]> rows = new ArrayList<>(), uncommitted = new ArrayList<>();
+  private int commits, rollbacks, savepointRollbacks, batches, connections;
+  private volatile long executeDelay;
+  private volatile String failValue;
+  private volatile boolean abortOnFail;
+  /**
+   * Whether the transaction is aborted by a failed batch, till rolled back.
+   */
+  private boolean aborted;
+  
+  private static class StandInSavepoint implements Savepoint
+  {
+    private final int id, mark;
+    StandInSavepoint(int id, int mark) {
+      this.id = id;
+      this.mark = mark;
+    }
+    @Override
+    public int getSavepointId() {
+      return id;
+    }
+    @Override
+    public String getSavepointName() throws SQLException {
+      throw new SQLException("Not a named savepoint");
+    }
+  }
+  /**
+   * 
+   * @param table
+   * @param names column names
+   * @param types column types, as {@link java.sql.Types}
+   * @param sizes column sizes
+   */
+  public JdbcStandIn(String table, String[] names, int[] types, int[] sizes) {
+    this.table = table;
+    this.names = names;
+    this.types = types;
+    this.sizes = sizes;
+  }
+  /**
+   * Loads the loader configuration for the given target database and table, from a temporary file, unless a configuration
+   * file is given by the <code>config.properties</code> system property. To be invoked before the configuration is first read.
+   * @param target
+   * @param table
+   * @param batchSize
+   * @throws IOException
+   */
+  public static void configure(String target, String table, int batchSize) throws IOException
+  {
+    if(System.getProperty(ConfigLoader.CONFIG_FILE) == null)
+    {
+      Properties props = new Properties();
+      props.setProperty(ConfigLoader.INSERT_INTO_TABLE, table);
+      props.setProperty(ConfigLoader.LOAD_BATCH_SIZE, String.valueOf(batchSize));
+      props.setProperty(ConfigLoader.LOAD_PER_THREAD, "1000000");
+      props.setProperty(ConfigLoader.LOAD_IGNORE_FIRST_LINE, "0");
+      props.setProperty(ConfigLoader.LOAD_FILE_NAME, "none");
+      props.setProperty(ConfigLoader.LOAD_SEPARATOR, ",");
+      props.setProperty(ConfigLoader.TARGET_DATABASE, target);
+      for(String key : new String[]{ConfigLoader.PGSQL_DB_DS, ConfigLoader.PGSQL_DB_URL, ConfigLoader.PGSQL_DB_USERNAME, ConfigLoader.PGSQL_DB_PASSWORD,
+          ConfigLoader.MYSQL_DB_URL, ConfigLoader.MYSQL_DB_USERNAME, ConfigLoader.MYSQL_DB_PASSWORD})
+        props.setProperty(key, "standin");
+      
+      File file = File.createTempFile("standin", ".properties");
+      file.deleteOnExit();
+      try(OutputStream out = new FileOutputStream(file))
+      {
+        props.store(out, null);
+      }
+      System.setProperty(ConfigLoader.CONFIG_FILE, file.getPath());
+    }
+    ConfigLoader.getConfig();
+  }
+  /**
+   * Time taken by each batch execution.
+   * @param millis
+   */
+  public void setExecuteDelay(long millis) {
+    this.executeDelay = millis;
+  }
+  /**
+   * Fails a batch execution with a {@link BatchUpdateException}, at the first row having the given value bound.
+   * @param value
+   */
+  public void setFailValue(String value) {
+    this.failValue = value;
+  }
+  /**
+   * Aborts the transaction on a failed batch, as PostgreSQL does. Statements then fail, and a commit rolls back, 
+   * till the transaction is rolled back, or rolled back to a savepoint.
+   * @param abortOnFail
+   */
+  public void setAbortOnFail(boolean abortOnFail) {
+    this.abortOnFail = abortOnFail;
+  }
+  public synchronized List<Object[]> getRows() {
+    return new ArrayList<>(rows);
+  }
+  public synchronized int getCommits() {
+    return commits;
+  }
+  public synchronized int getRollbacks() {
+    return rollbacks;
+  }
+  public synchronized int getSavepointRollbacks() {
+    return savepointRollbacks;
+  }
+  public synchronized int getBatches() {
+    return batches;
+  }
+  public synchronized int getConnections() {
+    return connections;
+  }
+  
+  private static Object proxy(Class<?> type, InvocationHandler handler)
+  {
+    return Proxy.newProxyInstance(JdbcStandIn.class.getClassLoader(), new Class<?>[]{type}, handler);
+  }
+  private static Object defaultValue(Method m)
+  {
+    Class<?> type = m.getReturnType();
+    if(type == boolean.class)
+      return false;
+    if(type == int.class)
+      return 0;
+    if(type == long.class)
+      return 0L;
+    if(type == short.class)
+      return (short) 0;
+    return null;
+  }
+  
+  public DataSource getDataSource()
+  {
+    return (DataSource) proxy(DataSource.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object p, Method m, Object[] args) {
+        return m.getName().equals("getConnection") ? newConnection() : defaultValue(m);
+      }
+    });
+  }
+  private Connection newConnection()
+  {
+    synchronized (this) {
+      connections++;
+    }
+    return (Connection) proxy(Connection.class, new InvocationHandler() {
+      private int savepoints;
+      @Override
+      public Object invoke(Object p, Method m, Object[] args) {
+        switch(m.getName())
+        {
+          case "getMetaData":
+            return newMetaData();
+          case "prepareStatement":
+            return newStatement((String) args[0]);
+          case "createStatement":
+            return newStatement(null);
+          case "commit":
+            commit();
+            return null;
+          case "rollback":
+            if(args != null)
+              rollback((StandInSavepoint) args[0]);
+            else
+              rollback();
+            return null;
+          case "setSavepoint":
+            return setSavepoint(++savepoints);
+          default:
+            return defaultValue(m);
+        }
+      }
+    });
+  }
+  private synchronized void commit()
+  {
+    commits++;
+    if(!aborted)
+      rows.addAll(uncommitted);
+    uncommitted.clear();
+    aborted = false;
+  }
+  private synchronized void rollback()
+  {
+    rollbacks++;
+    uncommitted.clear();
+    aborted = false;
+  }
+  private synchronized Savepoint setSavepoint(int id)
+  {
+    return new StandInSavepoint(id, uncommitted.size());
+  }
+  private synchronized void rollback(StandInSavepoint savepoint)
+  {
+    savepointRollbacks++;
+    uncommitted.subList(savepoint.mark, uncommitted.size()).clear();
+    aborted = false;
+  }
+  private synchronized int[] execute(List<List<Object>> batch) throws SQLException
+  {
+    if(aborted)
+      throw new SQLException("Current transaction is aborted, commands ignored until end of transaction block");
+    batches++;
+    int[] counts = new int[batch.size()];
+    for(int i = 0; i < counts.length; i++)
+    {
+      List<Object> params = batch.get(i);
+      if(failValue != null && params.contains(failValue))
+      {
+        counts = Arrays.copyOf(counts, i + 1);
+        counts[i] = Statement.EXECUTE_FAILED;
+        aborted = abortOnFail;
+        throw new BatchUpdateException("Failed at value "+failValue, counts);
+      }
+      //a multi row insert binds several rows
+      for(int from = 0; from < params.size(); from += names.length)
+        uncommitted.add(params.subList(from, from + names.length).toArray());
+      counts[i] = params.size() / names.length;
+    }
+    return counts;
+  }
+  private PreparedStatement newStatement(final String sql)
+  {
+    return (PreparedStatement) proxy(PreparedStatement.class, new InvocationHandler() {
+      private final Map<Integer, Object> params = new TreeMap<>();
+      private final List<List<Object>> batch = new ArrayList<>();
+      @Override
+      public Object invoke(Object p, Method m, Object[] args) throws Exception {
+        String name = m.getName();
+        if(name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer)
+        {
+          params.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+          return null;
+        }
+        switch(name)
+        {
+          case "clearParameters":
+            params.clear();
+            return null;
+          case "addBatch":
+            batch.add(new ArrayList<>(params.values()));
+            params.clear();
+            return null;
+          case "clearBatch":
+            batch.clear();
+            return null;
+          case "executeBatch":
+            if(executeDelay > 0)
+              Thread.sleep(executeDelay);
+            try {
+              return execute(batch);
+            } finally {
+              batch.clear();
+            }
+          default:
+            return defaultValue(m);
+        }
+      }
+    });
+  }
+  private DatabaseMetaData newMetaData()
+  {
+    return (DatabaseMetaData) proxy(DatabaseMetaData.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object p, Method m, Object[] args) {
+        switch(m.getName())
+        {
+          case "supportsBatchUpdates":
+          case "supportsSavepoints":
+            return true;
+          case "getTables":
+            Object[] found = new Object[4];
+            found[3] = table;
+            return newResultSet(args[2] != null && table.equalsIgnoreCase((String) args[2]) 
+                ? Collections.singletonList(found) : Collections.<Object[]>emptyList());
+          case "getPrimaryKeys":
+            return newResultSet(Collections.<Object[]>emptyList());
+          case "getColumns":
+            List<Object[]> columns = new ArrayList<>();
+            for(int i = 0; i < names.length; i++)
+            {
+              //COLUMN_NAME, DATA_TYPE, COLUMN_SIZE, ORDINAL_POSITION, IS_NULLABLE, IS_AUTOINCREMENT
+              Object[] col = new Object[24];
+              col[4] = names[i];
+              col[5] = types[i];
+              col[7] = sizes[i];
+              col[17] = i + 1;
+              col[18] = "YES";
+              col[23] = "NO";
+              columns.add(col);
+            }
+            return newResultSet(columns);
+          default:
+            return defaultValue(m);
+        }
+      }
+    });
+  }
+  /**
+   * A result set over rows of values, by 1 based column index.
+   */
+  private static ResultSet newResultSet(final List<Object[]> data)
+  {
+    return (ResultSet) proxy(ResultSet.class, new InvocationHandler() {
+      private int row = -1;
+      @Override
+      public Object invoke(Object p, Method m, Object[] args) {
+        String name = m.getName();
+        if(name.equals("next"))
+          return ++row < data.size();
+        if(name.startsWith("get") && args != null && args.length == 1 && args[0] instanceof Integer)
+        {
+          Object value = data.get(row)[(Integer) args[0]];
+          if(m.getReturnType() == int.class)
+            return value == null ? 0 : ((Number) value).intValue();
+          if(m.getReturnType() == short.class)
+            return value == null ? (short) 0 : ((Number) value).shortValue();
+          return value;
+        }
+        return defaultValue(m);
+      }
+    });
+  }
+}
@@ -0,0 +1,136 @@
+/* ============================================================================
+*
+* FILE: ScannerBenchmark.java
+*
+The MIT License (MIT)
+
+Copyright (c) 2016 Sutanu Dalui
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*
+* ============================================================================
+*/
+package com.reactivetechnologies.csvloader.test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import com.reactivetechnologies.csvloader.io.ByteScanner;
+/**
+ * Compares the byte wise line terminator check, as was done in <code>AsciiFileReader.splitBytes</code>,
+ * against the word at a time {@linkplain ByteScanner}, on narrow and wide rows.
+ * <pre>
+ * java com.reactivetechnologies.csvloader.test.ScannerBenchmark [size in MB]
+ * </pre>
+ */
+public class ScannerBenchmark {
+
+  private static final byte CR = 0xD, LF = 0xA;
+  
+  private static byte[] rows(int size, int minWidth, int maxWidth)
+  {
+    Random r = new Random(7);
+    byte[] bytes = new byte[size];
+    int width = 0, rowEnd = minWidth;
+    for(int i=0; i<size; i++)
+    {
+      if(width++ == rowEnd)
+      {
+        bytes[i] = LF;
+        width = 0;
+        rowEnd = minWidth + r.nextInt(maxWidth - minWidth + 1);
+      }
+      else
+        bytes[i] = (byte) (r.nextInt(10) == 0 ? ',' : 'a' + r.nextInt(26));
+    }
+    return bytes;
+  }
+  
+  private static int byteWise(byte[] bytes)
+  {
+    int lines = 0, len = bytes.length;
+    for (int pos = 0; pos < len; pos++)
+    {
+      if(pos < len - 1 && bytes[pos] == CR && bytes[pos+1] == LF)
+      {
+        pos++;
+        lines++;
+      }
+      else if(bytes[pos] == LF || bytes[pos] == CR)
+        lines++;
+    }
+    return lines;
+  }
+  
+  private static int wordWise(ByteBuffer buff)
+  {
+    int lines = 0, pos = 0, len = buff.limit();
+    while((pos = ByteScanner.indexOfTerminator(buff, pos, len)) != -1)
+    {
+      if(pos < len - 1 && buff.get(pos) == CR && buff.get(pos+1) == LF)
+        pos++;
+      pos++;
+      lines++;
+    }
+    return lines;
+  }
+  
+  private static void run(String name, byte[] bytes, int rounds)
+  {
+    ByteBuffer heap = ByteBuffer.wrap(bytes);
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes);
+    direct.flip();
+    
+    long start, byteTime = 0, heapTime = 0, directTime = 0;
+    int lines = 0;
+    for(int i=0; i<rounds; i++)
+    {
+      start = System.nanoTime();
+      lines = byteWise(bytes);
+      byteTime += System.nanoTime() - start;
+      
+      start = System.nanoTime();
+      if(wordWise(heap) != lines)
+        throw new IllegalStateException("Line count mismatch on heap buffer");
+      heapTime += System.nanoTime() - start;
+      
+      start = System.nanoTime();
+      if(wordWise(direct) != lines)
+        throw new IllegalStateException("Line count mismatch on direct buffer");
+      directTime += System.nanoTime() - start;
+    }
+    System.out.println(name+": "+lines+" lines/round. avg ms/round => byte wise: "+(byteTime/rounds/1000000.0)
+        +", word wise (heap): "+(heapTime/rounds/1000000.0)+", word wise (direct): "+(directTime/rounds/1000000.0));
+  }
+  
+  public static void main(String[] args) {
+    int size = (args.length > 0 ? Integer.parseInt(args[0]) : 64) * 1024 * 1024;
+    byte[] narrow = rows(size, 8, 40);
+    byte[] wide = rows(size, 500, 4000);
+    
+    //warm up
+    run("warmup narrow", narrow, 5);
+    run("warmup wide", wide, 5);
+    
+    run("narrow rows", narrow, 20);
+    run("wide rows", wide, 20);
+  }
+
+}